@@ -0,0 +1,34 @@
+package main;
+
+import java.util.List;
+import java.util.Map;
+
+//what compiling one program gave, class files are empty when there were errors
+public class CompileResult {
+    private int numberOfErrors;
+    //messages of the name and type errors, class file errors are only counted
+    private List<String> errors;
+    private Map<String, byte[]> classFiles;
+
+    public CompileResult(int numberOfErrors, List<String> errors, Map<String, byte[]> classFiles) {
+        this.numberOfErrors = numberOfErrors;
+        this.errors = errors;
+        this.classFiles = classFiles;
+    }
+
+    public boolean isSuccessful() {
+        return numberOfErrors == 0;
+    }
+
+    public int getNumberOfErrors() {
+        return numberOfErrors;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public Map<String, byte[]> getClassFiles() {
+        return classFiles;
+    }
+}
@@ -4,11 +4,100 @@ import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class Sophia {
     public static void main(String[] args) throws IOException {
-        CharStream reader = CharStreams.fromFileName(args[0]);
-        SophiaCompiler sophiaCompiler = new SophiaCompiler();
-        sophiaCompiler.compile(reader);
+        //--daemon [--port N] [--timeout seconds]
+        if (args.length > 0 && args[0].equals("--daemon")) {
+            int port = SophiaDaemon.DEFAULT_PORT;
+            int timeoutSeconds = SophiaDaemon.DEFAULT_TIMEOUT_SECONDS;
+            for (int i = 1; i + 1 < args.length; i++) {
+                if (args[i].equals("--port"))
+                    port = Integer.parseInt(args[++i]);
+                else if (args[i].equals("--timeout"))
+                    timeoutSeconds = Integer.parseInt(args[++i]);
+            }
+            new SophiaDaemon(port, timeoutSeconds).serve();
+            return;
+        }
+        int exitCode = run(Arrays.asList(args), Paths.get(""), System.out, new SophiaCompiler());
+        if (exitCode != 0)
+            System.exit(exitCode);
+    }
+
+    //what one command line does with relative paths taken from workingDirectory, the daemon runs many of them
+    //sophiaCompiler compiles and runs a single program, it is handed in so the daemon can stop what it runs
+    static int run(List<String> args, Path workingDirectory, PrintStream out, SophiaCompiler sophiaCompiler) throws IOException {
+        if (!args.isEmpty() && args.get(0).equals("--batch"))
+            return compileBatch(args.subList(1, args.size()), workingDirectory, out);
+        CharStream reader = CharStreams.fromPath(workingDirectory.resolve(args.get(0)));
+        configure(sophiaCompiler, args.subList(1, args.size()));
+        sophiaCompiler.setOutputPath(workingDirectory.resolve("output").toString());
+        sophiaCompiler.setUtilitiesPath(utilitiesPathOf(workingDirectory));
+        sophiaCompiler.setOut(out);
+        return sophiaCompiler.compileAndRun(reader);
+    }
+
+    private static String utilitiesPathOf(Path workingDirectory) {
+        return workingDirectory.resolve("utilities/codeGenerationUtilityClasses").toString();
+    }
+
+    static SophiaCompiler configure(SophiaCompiler sophiaCompiler, List<String> options) {
+        for (int i = 0; i < options.size(); i++) {
+            if (options.get(i).equals("--direct"))
+                sophiaCompiler.setUseDirectBackend(true);
+            else if (options.get(i).equals("--in-memory"))
+                sophiaCompiler.setRunInMemory(true);
+            else if (options.get(i).equals("--no-peephole"))
+                sophiaCompiler.setOptimizeInstructions(false);
+            else if (options.get(i).equals("--peephole-report"))
+                sophiaCompiler.setReportInstructionSavings(true);
+            //0 turns inlining off
+            else if (options.get(i).equals("--inline-budget") && (i + 1 < options.size()))
+                sophiaCompiler.setInlineSizeBudget(Integer.parseInt(options.get(++i)));
+        }
+        return sophiaCompiler;
+    }
+
+    //--batch [--jobs N] [--output folder] <folder or .sop file>... [compiler options]
+    //compiles every program without running it, the exit code is 1 when any of them has errors
+    private static int compileBatch(List<String> args, Path workingDirectory, PrintStream out) throws IOException {
+        List<String> compilerOptions = new ArrayList<>();
+        List<Path> inputs = new ArrayList<>();
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        String outputRoot = workingDirectory.resolve("batchOutput").toString();
+        for (int i = 0; i < args.size(); i++) {
+            if (args.get(i).equals("--jobs") && (i + 1 < args.size()))
+                parallelism = Integer.parseInt(args.get(++i));
+            else if (args.get(i).equals("--output") && (i + 1 < args.size()))
+                outputRoot = workingDirectory.resolve(args.get(++i)).toString();
+            else if (args.get(i).equals("--inline-budget") && (i + 1 < args.size())) {
+                compilerOptions.add(args.get(i));
+                compilerOptions.add(args.get(++i));
+            } else if (args.get(i).startsWith("--"))
+                compilerOptions.add(args.get(i));
+            else
+                inputs.add(workingDirectory.resolve(args.get(i)));
+        }
+        String utilitiesPath = utilitiesPathOf(workingDirectory);
+        SophiaBatchCompiler batchCompiler = new SophiaBatchCompiler(() -> {
+            SophiaCompiler sophiaCompiler = configure(new SophiaCompiler(), compilerOptions);
+            sophiaCompiler.setUtilitiesPath(utilitiesPath);
+            return sophiaCompiler;
+        }, outputRoot, parallelism);
+        List<Path> sourceFiles = SophiaBatchCompiler.sourceFilesOf(inputs);
+        long start = System.nanoTime();
+        List<SophiaBatchCompiler.ProgramResult> results = batchCompiler.compileAll(sourceFiles);
+        batchCompiler.printReport(results, System.nanoTime() - start, out);
+        for (SophiaBatchCompiler.ProgramResult result : results)
+            if (!result.getResult().isSuccessful())
+                return 1;
+        return 0;
     }
 }
@@ -0,0 +1,205 @@
+package main;
+
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+//compiles many programs at once on a work stealing pool, each into its own folder under the output root
+//programs are only compiled, running them in memory would share System.out between programs
+public class SophiaBatchCompiler {
+    //a new compiler with the same settings for every program
+    private Supplier<SophiaCompiler> compilers;
+    private String outputRoot;
+    private int parallelism;
+
+    public SophiaBatchCompiler(Supplier<SophiaCompiler> compilers, String outputRoot, int parallelism) {
+        this.compilers = compilers;
+        this.outputRoot = outputRoot.endsWith("/") ? outputRoot : outputRoot + "/";
+        this.parallelism = parallelism;
+    }
+
+    public static class ProgramResult {
+        private Path sourceFile;
+        private String outputPath;
+        private CompileResult result;
+        //everything the compiler printed for this program
+        private String log;
+        private long compileNanos;
+
+        public ProgramResult(Path sourceFile, String outputPath, CompileResult result, String log, long compileNanos) {
+            this.sourceFile = sourceFile;
+            this.outputPath = outputPath;
+            this.result = result;
+            this.log = log;
+            this.compileNanos = compileNanos;
+        }
+
+        public Path getSourceFile() {
+            return sourceFile;
+        }
+
+        public String getOutputPath() {
+            return outputPath;
+        }
+
+        public CompileResult getResult() {
+            return result;
+        }
+
+        public String getLog() {
+            return log;
+        }
+
+        public long getCompileNanos() {
+            return compileNanos;
+        }
+    }
+
+    //the .sop files under every directory, other inputs are taken as files
+    public static List<Path> sourceFilesOf(List<Path> inputs) throws IOException {
+        List<Path> sourceFiles = new ArrayList<>();
+        for (Path input : inputs) {
+            if (!Files.isDirectory(input)) {
+                sourceFiles.add(input);
+                continue;
+            }
+            try (Stream<Path> paths = Files.walk(input)) {
+                paths.filter(path -> Files.isRegularFile(path) && path.toString().endsWith(".sop"))
+                        .sorted()
+                        .forEach(sourceFiles::add);
+            }
+        }
+        return sourceFiles;
+    }
+
+    //results are in the order of the source files
+    public List<ProgramResult> compileAll(List<Path> sourceFiles) {
+        List<String> outputPaths = outputPathsOf(sourceFiles);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new CompileTask(sourceFiles, outputPaths, 0, sourceFiles.size()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    //a folder named after each file, with a number added when two files have the same name
+    private List<String> outputPathsOf(List<Path> sourceFiles) {
+        List<String> outputPaths = new ArrayList<>();
+        Set<String> taken = new HashSet<>();
+        for (Path sourceFile : sourceFiles) {
+            String name = sourceFile.getFileName().toString();
+            if (name.endsWith(".sop"))
+                name = name.substring(0, name.length() - ".sop".length());
+            String folder = name;
+            for (int i = 2; !taken.add(folder); i++)
+                folder = name + "_" + Integer.toString(i);
+            outputPaths.add(outputRoot + folder + "/");
+        }
+        return outputPaths;
+    }
+
+    //halves the range until one program is left, idle workers steal the halves that were forked
+    private class CompileTask extends RecursiveTask<List<ProgramResult>> {
+        private List<Path> sourceFiles;
+        private List<String> outputPaths;
+        private int from;
+        private int to;
+
+        CompileTask(List<Path> sourceFiles, List<String> outputPaths, int from, int to) {
+            this.sourceFiles = sourceFiles;
+            this.outputPaths = outputPaths;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<ProgramResult> compute() {
+            if (to - from == 0)
+                return new ArrayList<>();
+            if (to - from == 1) {
+                List<ProgramResult> results = new ArrayList<>();
+                results.add(compile(sourceFiles.get(from), outputPaths.get(from)));
+                return results;
+            }
+            int middle = (from + to) / 2;
+            CompileTask firstHalf = new CompileTask(sourceFiles, outputPaths, from, middle);
+            firstHalf.fork();
+            List<ProgramResult> secondResults = new CompileTask(sourceFiles, outputPaths, middle, to).compute();
+            List<ProgramResult> results = firstHalf.join();
+            results.addAll(secondResults);
+            return results;
+        }
+    }
+
+    private ProgramResult compile(Path sourceFile, String outputPath) {
+        ByteArrayOutputStream logBytes = new ByteArrayOutputStream();
+        PrintStream log = new PrintStream(logBytes, true);
+        long start = System.nanoTime();
+        CompileResult result;
+        try {
+            SophiaCompiler sophiaCompiler = compilers.get();
+            sophiaCompiler.setOutputPath(outputPath);
+            sophiaCompiler.setOut(log);
+            result = sophiaCompiler.compileToClassFiles(CharStreams.fromPath(sourceFile));
+        } catch (IOException e) {
+            result = crashed("cannot read " + sourceFile + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            //one program crashing the compiler does not stop the others
+            e.printStackTrace(log);
+            result = crashed("compiler crashed: " + e);
+        }
+        long compileNanos = System.nanoTime() - start;
+        log.close();
+        return new ProgramResult(sourceFile, outputPath, result, logBytes.toString(), compileNanos);
+    }
+
+    private static CompileResult crashed(String message) {
+        return new CompileResult(1, Collections.singletonList(message), Collections.emptyMap());
+    }
+
+    public void printReport(List<ProgramResult> results, long elapsedNanos, PrintStream out) {
+        int numberOfFailures = 0;
+        long compileNanos = 0;
+        for (ProgramResult programResult : results) {
+            CompileResult result = programResult.getResult();
+            compileNanos += programResult.getCompileNanos();
+            if (result.isSuccessful()) {
+                out.println("OK      " + programResult.getSourceFile() + " -> " + programResult.getOutputPath() +
+                        " (" + result.getClassFiles().size() + " classes, " + millisOf(programResult.getCompileNanos()) + " ms)");
+                continue;
+            }
+            numberOfFailures += 1;
+            out.println("FAILED  " + programResult.getSourceFile() + ": " + result.getNumberOfErrors() + " errors");
+            //class file errors only have their messages in the log
+            List<String> messages = result.getErrors();
+            if (messages.isEmpty())
+                messages = List.of(programResult.getLog().split("\\R"));
+            for (String message : messages)
+                out.println("        " + message);
+        }
+        out.println("\n---------------------------Batch----------------------------");
+        double seconds = elapsedNanos / 1e9;
+        out.println("Compiled " + results.size() + " programs, " + numberOfFailures + " failed, in " + millisOf(elapsedNanos) +
+                " ms on " + parallelism + " threads");
+        out.println(String.format("Throughput: %.1f programs/s, %d ms of compile time in total",
+                (seconds > 0) ? results.size() / seconds : 0.0, millisOf(compileNanos)));
+    }
+
+    private static long millisOf(long nanos) {
+        return nanos / 1000000;
+    }
+}
@@ -0,0 +1,66 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+//[--port N] <arguments of Sophia>, or --stop-daemon
+//forwards the command line to a running SophiaDaemon of this user, compiles in this JVM when there is none
+public class SophiaClient {
+    public static void main(String[] args) throws IOException {
+        List<String> arguments = Arrays.asList(args);
+        int port = SophiaDaemon.DEFAULT_PORT;
+        if (arguments.size() > 1 && arguments.get(0).equals("--port")) {
+            port = Integer.parseInt(arguments.get(1));
+            arguments = arguments.subList(2, arguments.size());
+        }
+        boolean stop = (arguments.size() == 1) && arguments.get(0).equals(SophiaDaemon.STOP_REQUEST);
+
+        Path tokenFile = SophiaDaemon.tokenFileOf(port);
+        Socket socket = null;
+        try {
+            if (Files.isReadable(tokenFile))
+                socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        } catch (ConnectException e) {
+            //a daemon that did not remove its token file
+        }
+        if (socket == null) {
+            if (stop)
+                System.out.println("No Sophia daemon is running");
+            else
+                Sophia.main(arguments.toArray(new String[0]));
+            return;
+        }
+
+        int exitCode;
+        try (Socket daemon = socket) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(daemon.getOutputStream()));
+            output.writeUTF(new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8));
+            output.writeUTF(Paths.get("").toAbsolutePath().toString());
+            output.writeInt(arguments.size());
+            for (String argument : arguments)
+                output.writeUTF(argument);
+            output.flush();
+
+            DataInputStream input = new DataInputStream(new BufferedInputStream(daemon.getInputStream()));
+            byte[] bytes = new byte[input.readInt()];
+            input.readFully(bytes);
+            System.out.write(bytes);
+            System.out.flush();
+            exitCode = input.readInt();
+        }
+        if (exitCode != 0)
+            System.exit(exitCode);
+    }
+}
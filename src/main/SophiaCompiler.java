@@ -1,8 +1,17 @@
 package main;
 
 import main.ast.nodes.Program;
+import main.runner.GeneratedClassLoader;
+import main.symbolTable.SymbolTableContext;
 import main.visitor.codeGenerator.CodeGenerator;
+import main.visitor.codeGenerator.backend.ClassBackend;
+import main.visitor.codeGenerator.backend.DirectBackend;
+import main.visitor.codeGenerator.backend.JasminAssembler;
+import main.visitor.codeGenerator.backend.JasminBackend;
 import main.visitor.nameAnalyzer.NameAnalyzer;
+import main.visitor.optimizer.ConstantFolder;
+import main.visitor.optimizer.DeadCodeEliminator;
+import main.visitor.optimizer.MethodInliner;
 import main.visitor.typeChecker.TypeChecker;
 import main.visitor.utils.ASTTreePrinter;
 import main.visitor.utils.ErrorReporter;
@@ -12,46 +21,210 @@ import parsers.SophiaLexer;
 import parsers.SophiaParser;
 
 import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 
 public class SophiaCompiler {
+    //jasmin backend by default, direct backend writes class files without going through jasmin code
+    private boolean useDirectBackend = false;
+    //run Main inside this JVM instead of starting a new java process
+    private boolean runInMemory = false;
+    private boolean optimizeInstructions = true;
+    private boolean reportInstructionSavings = false;
+    //largest returned expression, in nodes, of a method that is inlined at its calls
+    private int inlineSizeBudget = 8;
+    //emptied before every compile, gets the jasmin and class files of the program
+    private String outputPath = "output/";
+    //the .j files of the utility classes, relative paths are taken from the current folder
+    private String utilitiesPath = "utilities/codeGenerationUtilityClasses/";
+    //where the compiler reports progress and errors, the program's own output is not sent here
+    private PrintStream out = System.out;
+    private String programOutput;
+    //the java process running Main, guarded by this so a stop between compiling and starting it is not missed
+    private Process runningProgram;
+    private volatile boolean stopped = false;
+
+    public void setUseDirectBackend(boolean useDirectBackend) {
+        this.useDirectBackend = useDirectBackend;
+    }
+
+    public void setRunInMemory(boolean runInMemory) {
+        this.runInMemory = runInMemory;
+    }
+
+    public void setOptimizeInstructions(boolean optimizeInstructions) {
+        this.optimizeInstructions = optimizeInstructions;
+    }
+
+    public void setReportInstructionSavings(boolean reportInstructionSavings) {
+        this.reportInstructionSavings = reportInstructionSavings;
+    }
+
+    public void setInlineSizeBudget(int inlineSizeBudget) {
+        this.inlineSizeBudget = inlineSizeBudget;
+    }
+
+    public void setOutputPath(String outputPath) {
+        this.outputPath = outputPath.endsWith("/") ? outputPath : outputPath + "/";
+    }
+
+    public void setUtilitiesPath(String utilitiesPath) {
+        this.utilitiesPath = utilitiesPath.endsWith("/") ? utilitiesPath : utilitiesPath + "/";
+    }
+
+    public void setOut(PrintStream out) {
+        this.out = out;
+    }
+
+    //kills the program started by runClassFiles, or keeps it from starting, safe to call from another thread
+    public synchronized void stopRunningProgram() {
+        this.stopped = true;
+        if (runningProgram != null)
+            runningProgram.destroyForcibly();
+    }
+
+    public String getProgramOutput() {
+        return programOutput;
+    }
+
     public void compile(CharStream textStream) {
-        System.out.println("\n--------------------------Compiling--------------------------");
+        if (compileAndRun(textStream) != 0)
+            System.exit(1);
+    }
+
+    //returns the exit code compile exits with on errors, for callers that outlive one program
+    public int compileAndRun(CharStream textStream) {
+        CompileResult result = compileToClassFiles(textStream);
+        if (!result.isSuccessful())
+            return 1;
+        if (runInMemory)
+            runClassFilesInMemory(result.getClassFiles());
+        else
+            runClassFiles();
+        return 0;
+    }
+
+    //compiles without running the program or exiting on errors, the class files are written to the output path
+    public CompileResult compileToClassFiles(CharStream textStream) {
+        out.println("\n--------------------------Compiling--------------------------");
         SophiaLexer sophiaLexer = new SophiaLexer(textStream);
         CommonTokenStream tokenStream = new CommonTokenStream(sophiaLexer);
         SophiaParser sophiaParser = new SophiaParser(tokenStream);
         Program program = sophiaParser.sophia().sophiaProgram;
-        ErrorReporter errorReporter = new ErrorReporter();
-        NameAnalyzer nameAnalyzer = new NameAnalyzer(program);
+        ErrorReporter errorReporter = new ErrorReporter(out);
+        SymbolTableContext symbolTableContext = new SymbolTableContext();
+        NameAnalyzer nameAnalyzer = new NameAnalyzer(program, symbolTableContext);
         nameAnalyzer.analyze();
         int numberOfErrors = program.accept(errorReporter);
-        if(numberOfErrors > 0) {
-            System.out.println("\n" + numberOfErrors + " errors detected");
-            System.exit(1);
-        }
+        if(numberOfErrors > 0)
+            return failed(numberOfErrors, errorReporter.getMessages());
 //        ASTTreePrinter astTreePrinter = new ASTTreePrinter();
 //        program.accept(astTreePrinter);
-        TypeChecker typeChecker = new TypeChecker(nameAnalyzer.getClassHierarchy());
+        TypeChecker typeChecker = new TypeChecker(nameAnalyzer.getClassHierarchy(), symbolTableContext);
         program.accept(typeChecker);
         numberOfErrors = program.accept(errorReporter);
-        if(numberOfErrors > 0) {
-            System.out.println("\n" + numberOfErrors + " errors detected");
-            System.exit(1);
+        if(numberOfErrors > 0)
+            return failed(numberOfErrors, errorReporter.getMessages());
+        program.accept(new MethodInliner(nameAnalyzer.getClassHierarchy(), symbolTableContext, inlineSizeBudget));
+        program.accept(new ConstantFolder());
+        program.accept(new DeadCodeEliminator());
+        ClassBackend classBackend;
+        if (useDirectBackend)
+            classBackend = new DirectBackend(out);
+        else
+            classBackend = new JasminBackend(outputPath, out);
+        CodeGenerator codeGenerator;
+        try {
+            codeGenerator = new CodeGenerator(nameAnalyzer.getClassHierarchy(), symbolTableContext, classBackend, outputPath, utilitiesPath);
+        } catch (IOException e) {
+            String message = "cannot prepare " + outputPath + ": " + e;
+            out.println(message);
+            return failed(1, new ArrayList<>(Collections.singletonList(message)));
         }
-        CodeGenerator codeGenerator = new CodeGenerator(nameAnalyzer.getClassHierarchy());
+        codeGenerator.setOptimizeInstructions(optimizeInstructions);
+        codeGenerator.setReportInstructionSavings(reportInstructionSavings);
+        codeGenerator.setReportOutput(out);
         program.accept(codeGenerator);
-        System.out.println("Compilation successful");
-        runJasminFiles();
+        out.println("Compilation successful");
+        return generateClassFiles(codeGenerator.getUtilityClasses(), classBackend);
+    }
+
+    private CompileResult failed(int numberOfErrors, ArrayList<String> errors) {
+        out.println("\n" + numberOfErrors + " errors detected");
+        return new CompileResult(numberOfErrors, errors, Collections.emptyMap());
+    }
+
+    private CompileResult generateClassFiles(Map<String, String> utilityClasses, ClassBackend classBackend) {
+        out.println("\n-------------------Generating Class Files-------------------");
+        JasminAssembler jasminAssembler = new JasminAssembler(out);
+        Map<String, byte[]> classFiles = jasminAssembler.assembleAllShared(utilityClasses);
+        classFiles.putAll(classBackend.generateClassFiles());
+        int numberOfWriteErrors = 0;
+        for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+            try (OutputStream outputStream = new FileOutputStream(outputPath + classFile.getKey() + ".class")) {
+                outputStream.write(classFile.getValue());
+                out.println("Generated: " + classFile.getKey() + ".class");
+            } catch (IOException e) {
+                out.println("cannot write " + classFile.getKey() + ".class: " + e.getMessage());
+                numberOfWriteErrors++;
+            }
+        }
+        int numberOfErrors = jasminAssembler.getNumberOfErrors() + classBackend.getNumberOfErrors() + numberOfWriteErrors;
+        if (numberOfErrors > 0)
+            return failed(numberOfErrors, new ArrayList<>());
+        return new CompileResult(0, new ArrayList<>(), classFiles);
     }
 
-    private void runJasminFiles() {
+    private void runClassFilesInMemory(Map<String, byte[]> classFiles) {
+        out.println("\n---------------------------Output---------------------------");
+        GeneratedClassLoader classLoader = new GeneratedClassLoader(classFiles);
+        ByteArrayOutputStream outputBytes = new ByteArrayOutputStream();
+        PrintStream standardOutput = System.out;
+        PrintStream output = new PrintStream(outputBytes, true);
+        System.setOut(output);
         try {
-            System.out.println("\n-------------------Generating Class Files-------------------");
-            File dir = new File("./output");
-            Process process = Runtime.getRuntime().exec(new String[]{"bash", "-c", "java -jar jasmin.jar *.j"}, null, dir);
-            printResults(process.getInputStream());
-            printResults(process.getErrorStream());
-            System.out.println("\n---------------------------Output---------------------------");
-            process = Runtime.getRuntime().exec("java Main", null, dir);
+            Method mainMethod = classLoader.loadClass("Main").getMethod("main", String[].class);
+            mainMethod.setAccessible(true);
+            mainMethod.invoke(null, (Object) new String[0]);
+        } catch (InvocationTargetException e) {
+            printUncaught(e.getCause(), output);
+        } catch (ReflectiveOperationException e) {
+            e.printStackTrace(output);
+        } finally {
+            System.setOut(standardOutput);
+            output.close();
+        }
+        this.programOutput = outputBytes.toString();
+        printResults(new ByteArrayInputStream(outputBytes.toByteArray()));
+    }
+
+    //like the java launcher prints an exception thrown out of main, without the frames that called main
+    private static void printUncaught(Throwable exception, PrintStream output) {
+        StackTraceElement[] stackTrace = exception.getStackTrace();
+        int end = stackTrace.length;
+        for (int i = 0; i < stackTrace.length; i++)
+            if (stackTrace[i].getClassName().equals("Main") && stackTrace[i].getMethodName().equals("main"))
+                end = i + 1;
+        exception.setStackTrace(Arrays.copyOf(stackTrace, end));
+        output.print("Exception in thread \"main\" ");
+        exception.printStackTrace(output);
+    }
+
+    private void runClassFiles() {
+        try {
+            File dir = new File(outputPath);
+            out.println("\n---------------------------Output---------------------------");
+            Process process;
+            synchronized (this) {
+                if (stopped)
+                    return;
+                process = Runtime.getRuntime().exec("java Main", null, dir);
+                this.runningProgram = process;
+            }
             printResults(process.getInputStream());
             printResults(process.getErrorStream());
         } catch (IOException e) {
@@ -64,9 +237,11 @@ public class SophiaCompiler {
         String line;
         try {
             while ((line = reader.readLine()) != null)
-                System.out.println(line);
+                out.println(line);
         } catch (IOException e) {
-            e.printStackTrace();
+            //a stopped program's streams are closed under the reader
+            if (!stopped)
+                e.printStackTrace();
         }
     }
 }
@@ -0,0 +1,178 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+//keeps one JVM alive between compiles so the JIT compiled compiler, the parser's shared DFA cache and the
+//assembled utility classes are reused, SophiaClient sends it command lines over a loopback socket
+//only clients that can read the token file of the daemon's user are served
+//paths in a command line and the utility classes are taken from the client's folder
+//requests are handled one at a time, programs always run as child processes so a request that runs too long can be killed
+public class SophiaDaemon {
+    public static final int DEFAULT_PORT = 7425;
+    public static final int DEFAULT_TIMEOUT_SECONDS = 60;
+    //the only argument of the request that stops the daemon
+    public static final String STOP_REQUEST = "--stop-daemon";
+    //how long a client has to send its whole request
+    private static final int READ_TIMEOUT_MILLIS = 10000;
+
+    private int port;
+    //longest a request may compile and run before its client gets an error
+    private int timeoutSeconds;
+    private String token;
+
+    public SophiaDaemon(int port, int timeoutSeconds) {
+        this.port = port;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    //written by the daemon when it starts, readable only by its user, removed when it stops
+    public static Path tokenFileOf(int port) {
+        return Paths.get(System.getProperty("user.home"), ".sophia", "daemon-" + port + ".token");
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder token = new StringBuilder();
+        for (byte b : bytes)
+            token.append(String.format("%02x", b));
+        return token.toString();
+    }
+
+    private void writeTokenFile(Path tokenFile) throws IOException {
+        Files.createDirectories(tokenFile.getParent());
+        Files.deleteIfExists(tokenFile);
+        try {
+            Files.createFile(tokenFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            //not a posix file system, the owner only permissions are set before the token is written
+            File file = Files.createFile(tokenFile).toFile();
+            file.setReadable(false, false);
+            file.setReadable(true, true);
+            file.setWritable(false, false);
+            file.setWritable(true, true);
+        }
+        Files.write(tokenFile, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //request: token (utf), client folder (utf), number of arguments (int), arguments (utf)
+    //response: length of the output (int), output bytes, exit code (int)
+    public void serve() throws IOException {
+        this.token = newToken();
+        Path tokenFile = tokenFileOf(port);
+        try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            //only once the port is ours, a second daemon on the same port must not replace the token
+            writeTokenFile(tokenFile);
+            try {
+                System.out.println("Sophia daemon listening on " + serverSocket.getLocalSocketAddress());
+                boolean stopped = false;
+                while (!stopped) {
+                    try (Socket socket = serverSocket.accept()) {
+                        stopped = handle(socket);
+                    } catch (IOException e) {
+                        //a client that went away or was too slow does not stop the daemon
+                        e.printStackTrace();
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(tokenFile);
+            }
+        }
+    }
+
+    //returns true when the client asked the daemon to stop
+    private boolean handle(Socket socket) throws IOException {
+        socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        byte[] requestToken = input.readUTF().getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(requestToken, token.getBytes(StandardCharsets.UTF_8))) {
+            respond(socket, "Request without the daemon's token rejected\n".getBytes(StandardCharsets.UTF_8), 1);
+            return false;
+        }
+        Path workingDirectory = Paths.get(input.readUTF());
+        int numberOfArgs = input.readInt();
+        List<String> args = new ArrayList<>();
+        for (int i = 0; i < numberOfArgs; i++)
+            args.add(input.readUTF());
+
+        ByteArrayOutputStream outputBytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(outputBytes, true);
+        boolean stop = (args.size() == 1) && args.get(0).equals(STOP_REQUEST);
+        int exitCode = 0;
+        if (stop)
+            out.println("Sophia daemon stopped");
+        else
+            exitCode = runWithTimeLimit(args, workingDirectory, out);
+        out.close();
+        respond(socket, outputBytes.toByteArray(), exitCode);
+        return stop;
+    }
+
+    private static void respond(Socket socket, byte[] output, int exitCode) throws IOException {
+        DataOutputStream response = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        response.writeInt(output.length);
+        response.write(output);
+        response.writeInt(exitCode);
+        response.flush();
+    }
+
+    //every request runs on its own thread so a program that never ends only fails its own request
+    //--in-memory is ignored, a program running in this JVM could not be stopped and would keep System.out swapped
+    private int runWithTimeLimit(List<String> args, Path workingDirectory, PrintStream out) {
+        List<String> requestArgs = new ArrayList<>(args);
+        requestArgs.removeIf(arg -> arg.equals("--in-memory"));
+        SophiaCompiler sophiaCompiler = new SophiaCompiler();
+        FutureTask<Integer> request = new FutureTask<>(() -> run(requestArgs, workingDirectory, out, sophiaCompiler));
+        Thread worker = new Thread(request, "sophia-request");
+        worker.setDaemon(true);
+        worker.start();
+        try {
+            return request.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            request.cancel(true);
+            //the worker ends once the program's output streams close
+            sophiaCompiler.stopRunningProgram();
+            out.println("\nStopped after " + timeoutSeconds + " seconds");
+            return 1;
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace(out);
+            return 1;
+        }
+    }
+
+    //what the command line would print and exit with, without the daemon exiting
+    private static int run(List<String> args, Path workingDirectory, PrintStream out, SophiaCompiler sophiaCompiler) {
+        try {
+            return Sophia.run(args, workingDirectory, out, sophiaCompiler);
+        } catch (IOException e) {
+            out.println(e);
+            return 1;
+        } catch (RuntimeException | StackOverflowError e) {
+            e.printStackTrace(out);
+            return 1;
+        }
+    }
+}
@@ -8,7 +8,6 @@ import java.util.ArrayList;
 public abstract class Node {
     private int line;
     private ArrayList<CompileErrorException> errors = new ArrayList<>();
-    public static boolean isCatchErrorsActive = true;
 
     public ArrayList<CompileErrorException> flushErrors() {
         ArrayList<CompileErrorException> errors = this.errors;
@@ -17,9 +16,7 @@ public abstract class Node {
     }
 
     public void addError(CompileErrorException e) {
-        if(Node.isCatchErrorsActive) {
-            this.errors.add(e);
-        }
+        this.errors.add(e);
     }
 
     public boolean hasError() {
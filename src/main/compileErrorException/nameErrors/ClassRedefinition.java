@@ -2,7 +2,7 @@ package main.compileErrorException.nameErrors;
 
 import main.ast.nodes.declaration.classDec.ClassDeclaration;
 import main.compileErrorException.CompileErrorException;
-import main.symbolTable.SymbolTable;
+import main.symbolTable.SymbolTableContext;
 import main.symbolTable.exceptions.ItemAlreadyExistsException;
 import main.symbolTable.items.ClassSymbolTableItem;
 
@@ -14,15 +14,15 @@ public class ClassRedefinition extends CompileErrorException {
         this.classDeclaration = classDeclaration;
     }
 
-    public void handleException() {
+    public void handleException(SymbolTableContext context) {
         String newName = this.classDeclaration.getClassName().getName() + "_";
         this.classDeclaration.getClassName().setName(newName);
         ClassSymbolTableItem symbolTableActorItem = new ClassSymbolTableItem(this.classDeclaration);
-        symbolTableActorItem.setClassSymbolTable(SymbolTable.top);
+        symbolTableActorItem.setClassSymbolTable(context.getTop());
         try {
-            SymbolTable.root.put(symbolTableActorItem);
+            context.getRoot().put(symbolTableActorItem);
         } catch (ItemAlreadyExistsException exception) {
-            this.handleException();
+            this.handleException(context);
         }
     }
 
@@ -0,0 +1,20 @@
+package main.runner;
+
+import java.util.Map;
+
+public class GeneratedClassLoader extends ClassLoader {
+    private Map<String, byte[]> classFiles;
+
+    public GeneratedClassLoader(Map<String, byte[]> classFiles) {
+        super(GeneratedClassLoader.class.getClassLoader());
+        this.classFiles = classFiles;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] classBytes = classFiles.get(name);
+        if (classBytes == null)
+            throw new ClassNotFoundException(name);
+        return defineClass(name, classBytes, 0, classBytes.length);
+    }
+}
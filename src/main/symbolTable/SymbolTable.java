@@ -4,8 +4,8 @@ package main.symbolTable;
 import main.symbolTable.exceptions.ItemAlreadyExistsException;
 import main.symbolTable.exceptions.ItemNotFoundException;
 import main.symbolTable.items.SymbolTableItem;
-import main.symbolTable.utils.stack.Stack;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -13,28 +13,13 @@ import java.util.Set;
 
 
 
+//the root and the tables being collected belong to a SymbolTableContext, one for each compilation
 public class SymbolTable {
 
-    //Start of static members
-
-    public static SymbolTable top;
-    public static SymbolTable root;
-    private static Stack<SymbolTable> stack = new Stack<>();
-
-    public static void push(SymbolTable symbolTable) {
-        if (top != null)
-            stack.push(top);
-        top = symbolTable;
-    }
-
-    public static void pop() {
-        top = stack.pop();
-    }
-
-    //End of static members
-
     public SymbolTable pre;
     private Map<String, SymbolTableItem> items;
+    //the nearest item for each key in this table and the tables before it, set by resolve
+    private Map<String, SymbolTableItem> resolvedItems;
 
     public SymbolTable() {
         this(null);
@@ -49,9 +34,33 @@ public class SymbolTable {
         if (items.containsKey(item.getKey()))
             throw new ItemAlreadyExistsException();
         items.put(item.getKey(), item);
+        resolvedItems = null;
+    }
+
+    //called once the tables are complete and linked, lookups that search this table are then a single probe
+    public void resolve() {
+        Map<String, SymbolTableItem> resolvedItems = new HashMap<>();
+        Set<SymbolTable> visitedSymbolTables = new HashSet<>();
+        SymbolTable currentSymbolTable = this;
+        while ((currentSymbolTable != null) && visitedSymbolTables.add(currentSymbolTable)) {
+            for (SymbolTableItem symbolTableItem : currentSymbolTable.items.values())
+                resolvedItems.putIfAbsent(symbolTableItem.getKey(), symbolTableItem);
+            currentSymbolTable = currentSymbolTable.pre;
+        }
+        this.resolvedItems = resolvedItems;
+    }
+
+    public Collection<SymbolTableItem> getResolvedItems() {
+        return resolvedItems.values();
     }
 
     public SymbolTableItem getItem(String key, Boolean searchCurrent) throws ItemNotFoundException {
+        if (searchCurrent && (resolvedItems != null)) {
+            SymbolTableItem symbolTableItem = resolvedItems.get(key);
+            if (symbolTableItem == null)
+                throw new ItemNotFoundException();
+            return symbolTableItem;
+        }
         Set<SymbolTable> visitedSymbolTables = new HashSet<>();
         SymbolTable currentSymbolTable = this;
         if(!searchCurrent) {
@@ -0,0 +1,34 @@
+package main.symbolTable;
+
+import main.symbolTable.utils.stack.Stack;
+
+//symbol tables of one compilation, every pass of that compilation gets the same context
+//and compilations in other threads get their own
+public class SymbolTableContext {
+    private SymbolTable root;
+    private SymbolTable top;
+    private Stack<SymbolTable> stack = new Stack<>();
+
+    public SymbolTable getRoot() {
+        return root;
+    }
+
+    public void setRoot(SymbolTable root) {
+        this.root = root;
+    }
+
+    //the table names are being collected into
+    public SymbolTable getTop() {
+        return top;
+    }
+
+    public void push(SymbolTable symbolTable) {
+        if (top != null)
+            stack.push(top);
+        top = symbolTable;
+    }
+
+    public void pop() {
+        top = stack.pop();
+    }
+}
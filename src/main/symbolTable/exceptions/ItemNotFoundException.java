@@ -2,4 +2,8 @@ package main.symbolTable.exceptions;
 
 
 public class ItemNotFoundException extends Exception {
+    //failed lookups are how callers tell fields from methods, so these are thrown often and carry no stack trace
+    public ItemNotFoundException() {
+        super(null, null, false, false);
+    }
 }
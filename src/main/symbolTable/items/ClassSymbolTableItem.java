@@ -3,11 +3,18 @@ package main.symbolTable.items;
 
 import main.ast.nodes.declaration.classDec.ClassDeclaration;
 import main.symbolTable.SymbolTable;
+import main.symbolTable.exceptions.ItemNotFoundException;
+
+import java.util.HashMap;
+import java.util.Map;
 
 public class ClassSymbolTableItem extends SymbolTableItem {
     public static final String START_KEY = "Class_";
     private SymbolTable classSymbolTable;
     private ClassDeclaration classDeclaration;
+    //fields and methods of the class and its ancestors by name, the nearest declaration wins, set by resolveMembers
+    private Map<String, FieldSymbolTableItem> fields;
+    private Map<String, MethodSymbolTableItem> methods;
 
     public ClassSymbolTableItem(ClassDeclaration classDeclaration) {
         this.classDeclaration = classDeclaration;
@@ -30,6 +37,39 @@ public class ClassSymbolTableItem extends SymbolTableItem {
         this.classDeclaration = classDeclaration;
     }
 
+    //called once the class tables are linked to their parents'
+    public void resolveMembers() {
+        classSymbolTable.resolve();
+        Map<String, FieldSymbolTableItem> fields = new HashMap<>();
+        Map<String, MethodSymbolTableItem> methods = new HashMap<>();
+        for (SymbolTableItem symbolTableItem : classSymbolTable.getResolvedItems()) {
+            if (symbolTableItem instanceof FieldSymbolTableItem)
+                fields.put(symbolTableItem.getName(), (FieldSymbolTableItem) symbolTableItem);
+            else if (symbolTableItem instanceof MethodSymbolTableItem)
+                methods.put(symbolTableItem.getName(), (MethodSymbolTableItem) symbolTableItem);
+        }
+        this.fields = fields;
+        this.methods = methods;
+    }
+
+    public FieldSymbolTableItem getField(String name) throws ItemNotFoundException {
+        if (fields == null)
+            return (FieldSymbolTableItem) classSymbolTable.getItem(FieldSymbolTableItem.START_KEY + name, true);
+        FieldSymbolTableItem field = fields.get(name);
+        if (field == null)
+            throw new ItemNotFoundException();
+        return field;
+    }
+
+    public MethodSymbolTableItem getMethod(String name) throws ItemNotFoundException {
+        if (methods == null)
+            return (MethodSymbolTableItem) classSymbolTable.getItem(MethodSymbolTableItem.START_KEY + name, true);
+        MethodSymbolTableItem method = methods.get(name);
+        if (method == null)
+            throw new ItemNotFoundException();
+        return method;
+    }
+
     @Override
     public String getKey() {
         return START_KEY + this.name;
@@ -5,7 +5,7 @@ import main.ast.nodes.declaration.classDec.classMembersDec.FieldDeclaration;
 import main.ast.types.Type;
 
 public class FieldSymbolTableItem extends SymbolTableItem {
-    public static String START_KEY = "Field_";
+    public static final String START_KEY = "Field_";
     protected Type type;
 
     public FieldSymbolTableItem(FieldDeclaration fieldDeclaration) {
@@ -5,7 +5,7 @@ import main.ast.nodes.declaration.variableDec.VarDeclaration;
 import main.ast.types.Type;
 
 public class LocalVariableSymbolTableItem extends SymbolTableItem {
-    public static String START_KEY = "Var_";
+    public static final String START_KEY = "Var_";
     protected Type type;
 
     public LocalVariableSymbolTableItem(VarDeclaration varDeclaration) {
@@ -7,11 +7,15 @@ import java.util.*;
 
 public class Graph<N> {
     private Map<N, Set<N>> parentShipRelation = new HashMap<>();
+    //built once the graph is complete and dropped when it changes, a node's ancestors include itself
+    private Map<N, Integer> nodeIds;
+    private List<BitSet> ancestors;
 
     public void addNode(N desired) throws NodeAlreadyExistsException {
         if (parentShipRelation.containsKey(desired))
             throw new NodeAlreadyExistsException();
         parentShipRelation.put(desired, new HashSet<>());
+        nodeIds = null;
     }
 
     public boolean doesGraphContainNode(N desired) {
@@ -22,6 +26,35 @@ public class Graph<N> {
         if (!parentShipRelation.containsKey(desired))
             throw new GraphDoesNotContainNodeException();
         parentShipRelation.get(desired).add(parentNode);
+        nodeIds = null;
+    }
+
+    //numbers every node, parents that are not nodes included, and collects the ancestors of each one so ancestor
+    //tests are a bit lookup, each walk stops at nodes it has reached so cycles are only followed once
+    public void buildIndex() {
+        Map<N, Integer> nodeIds = new HashMap<>();
+        for (Map.Entry<N, Set<N>> relation : parentShipRelation.entrySet()) {
+            nodeIds.putIfAbsent(relation.getKey(), nodeIds.size());
+            for (N parent : relation.getValue())
+                nodeIds.putIfAbsent(parent, nodeIds.size());
+        }
+        List<BitSet> ancestors = new ArrayList<>();
+        for (int i = 0; i < nodeIds.size(); i++)
+            ancestors.add(new BitSet(nodeIds.size()));
+        for (Map.Entry<N, Integer> node : nodeIds.entrySet()) {
+            BitSet reached = ancestors.get(node.getValue());
+            reached.set(node.getValue());
+            Deque<N> worklist = new ArrayDeque<>(parentShipRelation.getOrDefault(node.getKey(), Collections.emptySet()));
+            while (!worklist.isEmpty()) {
+                N parent = worklist.pop();
+                if (reached.get(nodeIds.get(parent)))
+                    continue;
+                reached.set(nodeIds.get(parent));
+                worklist.addAll(parentShipRelation.getOrDefault(parent, Collections.emptySet()));
+            }
+        }
+        this.nodeIds = nodeIds;
+        this.ancestors = ancestors;
     }
 
     public Collection<N> getParentsOfNode(N desired) throws GraphDoesNotContainNodeException {
@@ -31,6 +64,13 @@ public class Graph<N> {
     }
 
     public boolean isSecondNodeAncestorOf(N first , N second) {
+        if (nodeIds != null) {
+            if (first.equals(second))
+                return true;
+            Integer firstId = nodeIds.get(first);
+            Integer secondId = nodeIds.get(second);
+            return (firstId != null) && (secondId != null) && ancestors.get(firstId).get(secondId);
+        }
         Set<N> visitedNodes = new HashSet<>();
         return _isSecondNodeAncestorOf(first,second, visitedNodes);
     }
@@ -28,121 +28,200 @@ import main.ast.types.single.BoolType;
 import main.ast.types.single.ClassType;
 import main.ast.types.single.IntType;
 import main.ast.types.single.StringType;
-import main.symbolTable.SymbolTable;
+import main.symbolTable.SymbolTableContext;
 import main.symbolTable.exceptions.ItemNotFoundException;
 import main.symbolTable.items.ClassSymbolTableItem;
-import main.symbolTable.items.FieldSymbolTableItem;
+import main.symbolTable.items.MethodSymbolTableItem;
 import main.symbolTable.utils.graph.Graph;
-import main.symbolTable.utils.graph.exceptions.GraphDoesNotContainNodeException;
 import main.visitor.Visitor;
+import main.visitor.codeGenerator.backend.ClassBackend;
+import main.visitor.codeGenerator.instruction.Instruction;
+import main.visitor.codeGenerator.instruction.InstructionList;
+import main.visitor.codeGenerator.instruction.LocalSlotAllocator;
+import main.visitor.codeGenerator.instruction.PeepholeOptimizer;
+import main.visitor.codeGenerator.instruction.StackDepthAnalyzer;
 import main.visitor.typeChecker.ExpressionTypeChecker;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-public class CodeGenerator extends Visitor<String> {
+public class CodeGenerator extends Visitor<InstructionList> {
     ExpressionTypeChecker expressionTypeChecker;
     Graph<String> classHierarchy;
+    private final SymbolTableContext context;
     private String outputPath;
-    private FileWriter currentFile;
+    private ClassBackend classBackend;
+    private Map<String, String> utilityClasses;
+    //fptr descriptor -> generated functional interface
+    private Map<String, String> functionalInterfaces;
+    //erased element descriptors -> generated tuple class, and a list type of each tuple class in order
+    private Map<String, String> tupleClasses;
+    private ArrayList<ListType> tupleTypes;
+
+    //peephole optimization of every method, optionally printing how many instructions it saved
+    private boolean optimizeInstructions;
+    private boolean reportInstructionSavings;
+    private PrintStream reportOutput;
 
     private ClassDeclaration currentClass;
+    private String currentClassName;
     private MethodDeclaration currentMethod;
+    private InstructionList currentCode;
 
     private int labelCounter;
 
-    private ArrayList<String> currentSlot;
-    private int tempVariable;
+    //slots of the arguments and locals of the current method, temporaries take fresh slots after them
+    //and the slot allocator packs them all once the method is generated
+    private Map<String, Integer> currentSlots;
+    private int nextSlot;
 
     private ArrayList<String> continueLabels;
     private ArrayList<String> breakLabels;
 
-    static String methodHeader = ".limit stack 128\n" + ".limit locals 128";
-
-    public CodeGenerator(Graph<String> classHierarchy) {
+    //outputPath is emptied and gets the jasmin code of the utility classes
+    public CodeGenerator(Graph<String> classHierarchy, SymbolTableContext context, ClassBackend classBackend, String outputPath, String utilitiesPath) throws IOException {
         this.labelCounter = 0;
-        this.tempVariable = 0;
-        this.currentSlot = new ArrayList<>();
+        this.nextSlot = 0;
+        this.currentSlots = new HashMap<>();
         this.continueLabels = new ArrayList<>();
         this.breakLabels = new ArrayList<>();
+        this.utilityClasses = new LinkedHashMap<>();
+        this.functionalInterfaces = new LinkedHashMap<>();
+        this.tupleClasses = new LinkedHashMap<>();
+        this.tupleTypes = new ArrayList<>();
+        this.classBackend = classBackend;
         this.classHierarchy = classHierarchy;
-        this.expressionTypeChecker = new ExpressionTypeChecker(classHierarchy);
-        this.prepareOutputFolder();
+        this.context = context;
+        this.optimizeInstructions = true;
+        this.reportInstructionSavings = false;
+        this.reportOutput = System.out;
+        this.outputPath = outputPath;
+        this.expressionTypeChecker = new ExpressionTypeChecker(classHierarchy, context);
+        this.prepareOutputFolder(utilitiesPath);
     }
 
-    private void prepareOutputFolder() {
-        this.outputPath = "output/";
-        String jasminPath = "utilities/jarFiles/jasmin.jar";
-        String listClassPath = "utilities/codeGenerationUtilityClasses/List.j";
-        String fptrClassPath = "utilities/codeGenerationUtilityClasses/Fptr.j";
+    //the compile cannot go on without the utility classes, a failure to copy or read them is thrown
+    private void prepareOutputFolder(String utilitiesPath) throws IOException {
+        String listClassPath = utilitiesPath + "List.j";
+        String fptrClassPath = utilitiesPath + "Fptr.j";
+        String tupleClassPath = utilitiesPath + "Tuple.j";
+        String intListClassPath = utilitiesPath + "IntList.j";
+        String boolListClassPath = utilitiesPath + "BoolList.j";
         try {
             File directory = new File(this.outputPath);
             File[] files = directory.listFiles();
             if (files != null)
                 for (File file : files)
                     file.delete();
-            directory.mkdir();
         } catch (SecurityException e) {
         }
-        copyFile(jasminPath, this.outputPath + "jasmin.jar");
+        Files.createDirectories(Paths.get(this.outputPath));
         copyFile(listClassPath, this.outputPath + "List.j");
         copyFile(fptrClassPath, this.outputPath + "Fptr.j");
+        copyFile(tupleClassPath, this.outputPath + "Tuple.j");
+        copyFile(intListClassPath, this.outputPath + "IntList.j");
+        copyFile(boolListClassPath, this.outputPath + "BoolList.j");
+        loadUtilityClass("List", listClassPath);
+        loadUtilityClass("Fptr", fptrClassPath);
+        loadUtilityClass("Tuple", tupleClassPath);
+        loadUtilityClass("IntList", intListClassPath);
+        loadUtilityClass("BoolList", boolListClassPath);
     }
 
-    private void copyFile(String toBeCopied, String toBePasted) {
-        try {
-            File readingFile = new File(toBeCopied);
-            File writingFile = new File(toBePasted);
-            InputStream readingFileStream = new FileInputStream(readingFile);
-            OutputStream writingFileStream = new FileOutputStream(writingFile);
-            byte[] buffer = new byte[1024];
-            int readLength;
-            while ((readLength = readingFileStream.read(buffer)) > 0)
-                writingFileStream.write(buffer, 0, readLength);
-            readingFileStream.close();
-            writingFileStream.close();
-        } catch (IOException e) {
-        }
+    private void loadUtilityClass(String name, String path) throws IOException {
+        this.utilityClasses.put(name, new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
     }
 
-    private void createFile(String name) {
-        try {
-            String path = this.outputPath + name + ".j";
-            File file = new File(path);
-            file.createNewFile();
-            FileWriter fileWriter = new FileWriter(path);
-            this.currentFile = fileWriter;
-        } catch (IOException e) {
-        }
+    public void setOptimizeInstructions(boolean optimizeInstructions) {
+        this.optimizeInstructions = optimizeInstructions;
     }
 
-    private void addCommand(String command) {
-        try {
-            command = String.join("\n\t\t", command.split("\n"));
-            if (command.startsWith("Label_"))
-                this.currentFile.write("\t" + command + "\n");
-            else if (command.startsWith("."))
-                this.currentFile.write(command + "\n");
-            else
-                this.currentFile.write("\t\t" + command + "\n");
-            this.currentFile.flush();
-        } catch (IOException e) {
+    public void setReportInstructionSavings(boolean reportInstructionSavings) {
+        this.reportInstructionSavings = reportInstructionSavings;
+    }
+
+    public void setReportOutput(PrintStream reportOutput) {
+        this.reportOutput = reportOutput;
+    }
+
+    public Map<String, String> getUtilityClasses() {
+        return utilityClasses;
+    }
+
+    private void copyFile(String toBeCopied, String toBePasted) throws IOException {
+        Files.copy(Paths.get(toBeCopied), Paths.get(toBePasted), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void addCommand(String opcode) {
+        currentCode.add(opcode);
+    }
+
+    private void addCommand(String opcode, String operand) {
+        currentCode.add(opcode, operand);
+    }
+
+    private void addCommands(InstructionList commands) {
+        currentCode.addAll(commands);
+    }
+
+    private void addLabel(String label) {
+        currentCode.addLabel(label);
+    }
+
+    private String newLabel() {
+        labelCounter += 1;
+        return "Label" + Integer.toString(labelCounter - 1);
+    }
+
+    //slot 0 is this, or args for the static main
+    private void beginMethod() {
+        this.currentCode = new InstructionList();
+        this.currentSlots.clear();
+        this.nextSlot = 0;
+        declareSlot("this");
+    }
+
+    private void endMethod(String accessFlags, String methodName, String descriptor) {
+        ArrayList<Instruction> code = currentCode.toArrayList();
+        if (optimizeInstructions) {
+            int instructionCount = PeepholeOptimizer.instructionCountOf(code);
+            code = new PeepholeOptimizer(code).optimize();
+            if (reportInstructionSavings)
+                reportOutput.println(currentClassName + "." + methodName + ": " +
+                        Integer.toString(instructionCount - PeepholeOptimizer.instructionCountOf(code)) + " instructions saved");
         }
+        LocalSlotAllocator localSlotAllocator = new LocalSlotAllocator(code, descriptor, accessFlags.contains("static"));
+        code = localSlotAllocator.allocate();
+        int maxStack = new StackDepthAnalyzer(code).maxStack();
+        int maxLocals = localSlotAllocator.maxLocals();
+        classBackend.addMethod(accessFlags, methodName, descriptor, code, maxStack, maxLocals);
+    }
+
+    private String superClassName() {
+        if (this.currentClass.getParentClassName() == null)
+            return "java/lang/Object";
+        return this.currentClass.getParentClassName().getName();
     }
 
     private String makeTypeSignature(Type t) {
         String typeString = "";
         if (t instanceof IntType)
-            typeString += "Ljava/lang/Integer;";
+            typeString += "I";
         else if (t instanceof BoolType)
-            typeString += "Ljava/lang/Boolean;";
+            typeString += "Z";
         else if (t instanceof StringType)
             typeString += "Ljava/lang/String;";
         else if (t instanceof FptrType)
             typeString += "LFptr;";
         else if (t instanceof ListType)
-            typeString += "LList;";
+            typeString += "L" + listClassOf((ListType) t) + ";";
         else if (t instanceof ClassType)
             typeString += "L" + ((ClassType) t).getClassName().getName() + ";";
         else
@@ -150,105 +229,542 @@ public class CodeGenerator extends Visitor<String> {
         return typeString;
     }
 
-    private void initializeType(Type type) {
+    //int and bool values are unboxed everywhere except inside List and Fptr
+    private InstructionList box(Type type) {
+        InstructionList commands = new InstructionList();
+        if (type instanceof IntType)
+            commands.add("invokestatic", "java/lang/Integer/valueOf(I)Ljava/lang/Integer;");
+        else if (type instanceof BoolType)
+            commands.add("invokestatic", "java/lang/Boolean/valueOf(Z)Ljava/lang/Boolean;");
+        return commands;
+    }
+
+    private boolean isPrimitive(Type type) {
+        return (type instanceof IntType) || (type instanceof BoolType);
+    }
+
+    private String loadOpcodeOf(Type type) {
+        return isPrimitive(type) ? "iload" : "aload";
+    }
+
+    private String storeOpcodeOf(Type type) {
+        return isPrimitive(type) ? "istore" : "astore";
+    }
+
+    private String returnOpcodeOf(Type type) {
+        return isPrimitive(type) ? "ireturn" : "areturn";
+    }
+
+    //for values that come out of List and Fptr as Object
+    private InstructionList castFromObject(Type type) {
+        InstructionList commands = new InstructionList();
         if (type instanceof IntType) {
-            addCommand("new java/lang/Integer");
-            addCommand("dup");
-            addCommand("iconst_0");
-            addCommand("invokespecial java/lang/Integer/<init>(I)V");
+            commands.add("checkcast", "java/lang/Integer");
+            commands.add("invokevirtual", "java/lang/Integer/intValue()I");
         } else if (type instanceof BoolType) {
-            addCommand("new java/lang/Boolean");
-            addCommand("dup");
-            addCommand("iconst_0");
-            addCommand("invokespecial java/lang/Boolean/<init>(Z)V");
+            commands.add("checkcast", "java/lang/Boolean");
+            commands.add("invokevirtual", "java/lang/Boolean/booleanValue()Z");
+        } else if (type instanceof StringType) {
+            commands.add("checkcast", "java/lang/String");
+        } else if (type instanceof ListType) {
+            commands.add("checkcast", listClassOf((ListType) type));
+        } else if (type instanceof FptrType) {
+            commands.add("checkcast", "Fptr");
+        } else if (type instanceof ClassType) {
+            commands.add("checkcast", ((ClassType) type).getClassName().getName());
+        }
+        return commands;
+    }
+
+    private InstructionList intConstant(int value) {
+        InstructionList commands = new InstructionList();
+        if (value == -1)
+            commands.add("iconst_m1");
+        else if (0 <= value && value <= 5)
+            commands.add("iconst_" + Integer.toString(value));
+        else if (-128 <= value && value <= 127)
+            commands.add("bipush", Integer.toString(value));
+        else if (-32768 <= value && value <= 32767)
+            commands.add("sipush", Integer.toString(value));
+        else
+            commands.add("ldc", Integer.toString(value));
+        return commands;
+    }
+
+    private InstructionList initializeType(Type type) {
+        InstructionList commands = new InstructionList();
+        if (isPrimitive(type)) {
+            commands.add("iconst_0");
         } else if (type instanceof StringType) {
-            addCommand("ldc \"\"");
+            commands.add("ldc", "\"\"");
+        } else if (type instanceof ListType && isTuple((ListType) type)) {
+            String tupleClass = listClassOf((ListType) type);
+            commands.add("new", tupleClass);
+            commands.add("dup");
+            for (ListNameType listNameType : ((ListType) type).getElementsTypes())
+                commands.addAll(initializeType(listNameType.getType()));
+            commands.add("invokespecial", tupleClass + "/<init>" + tupleConstructorDescriptor((ListType) type));
+        } else if (type instanceof ListType && primitiveElementOf((ListType) type) != null) {
+            //the new array is already zeroed
+            String element = primitiveElementOf((ListType) type);
+            commands.add("new", listClassOf((ListType) type));
+            commands.add("dup");
+            commands.addAll(intConstant(((ListType) type).getElementsTypes().size()));
+            commands.add("newarray", element.equals("I") ? "int" : "boolean");
+            commands.add("invokespecial", listClassOf((ListType) type) + "/<init>([" + element + ")V");
         } else if (type instanceof ListType) {
-            addCommand("new List");
-            addCommand("dup ");
+            commands.add("new", "List");
+            commands.add("dup");
 
-            addCommand("new java/util/ArrayList");
-            addCommand("dup ");
-            addCommand("invokespecial java/util/ArrayList/<init>()V");
+            commands.add("new", "java/util/ArrayList");
+            commands.add("dup");
+            commands.add("invokespecial", "java/util/ArrayList/<init>()V");
             ArrayList<ListNameType> listNameTypes = ((ListType) type).getElementsTypes();
             for (ListNameType listNameType : listNameTypes) {
-                addCommand("dup");
-                initializeType(listNameType.getType());
-                addCommand("invokevirtual java/util/ArrayList/add(Ljava/lang/Object;)Z");
-                addCommand("pop");
+                commands.add("dup");
+                commands.addAll(initializeType(listNameType.getType()));
+                commands.addAll(box(listNameType.getType()));
+                commands.add("invokevirtual", "java/util/ArrayList/add(Ljava/lang/Object;)Z");
+                commands.add("pop");
             }
-            addCommand("invokespecial List/<init>(Ljava/util/ArrayList;)V");
+            commands.add("invokespecial", "List/<init>(Ljava/util/ArrayList;)V");
         } else if (type instanceof FptrType) {
-            addCommand("aconst_null");
+            commands.add("aconst_null");
         } else if (type instanceof ClassType) {
-            addCommand("aconst_null");
+            commands.add("aconst_null");
         }
+        return commands;
     }
 
-    private void addDefaultConstructor() {
-        addCommand(".method public <init>()V\n" + methodHeader);
-        addCommand("aload_0");
-        if (this.currentClass.getParentClassName() == null)
-            addCommand("invokespecial java/lang/Object/<init>()V");
-        else
-            addCommand("invokespecial " + currentClass.getParentClassName().getName() + "/<init>()V");
+    private void initializeFields() {
         for (FieldDeclaration fieldDeclaration : currentClass.getFields()) {
             addCommand("aload_0");
-            initializeType(fieldDeclaration.getVarDeclaration().getType());
-            addCommand("putfield " + currentClass.getClassName().getName() + "/" + fieldDeclaration.getVarDeclaration().getVarName().getName() + " " + makeTypeSignature(fieldDeclaration.getVarDeclaration().getType()));
+            addCommands(initializeType(fieldDeclaration.getVarDeclaration().getType()));
+            addCommand("putfield", currentClass.getClassName().getName() + "/" + fieldDeclaration.getVarDeclaration().getVarName().getName() + " " + makeTypeSignature(fieldDeclaration.getVarDeclaration().getType()));
         }
+    }
+
+    private void addDefaultConstructor() {
+        beginMethod();
+        addCommand("aload_0");
+        addCommand("invokespecial", superClassName() + "/<init>()V");
+        initializeFields();
         addCommand("return");
-        addCommand(".end method");
-        addCommand("");
+        endMethod("public", "<init>", "()V");
     }
 
     private void addStaticMainMethod() {
-        addCommand(".method public static main([Ljava/lang/String;)V\n" + methodHeader);
-        addCommand("new Main");
-        addCommand("invokespecial Main/<init>()V");
+        beginMethod();
+        addCommand("new", "Main");
+        addCommand("invokespecial", "Main/<init>()V");
         addCommand("return");
-        addCommand(".end method");
-        addCommand("");
+        endMethod("public static", "main", "([Ljava/lang/String;)V");
+    }
+
+    private int declareSlot(String identifier) {
+        currentSlots.put(identifier, nextSlot);
+        nextSlot += 1;
+        return nextSlot - 1;
+    }
+
+    private int newTemporarySlot() {
+        nextSlot += 1;
+        return nextSlot - 1;
     }
 
     private int slotOf(String identifier) {
-        if (identifier.equals("")) {
-            tempVariable += 1;
-            return currentSlot.size() + tempVariable - 1;
+        Integer slot = currentSlots.get(identifier);
+        return (slot == null) ? 0 : slot;
+    }
+
+    private Instruction slotCommand(String opcode, int slot) {
+        if (slot <= 3)
+            return new Instruction(opcode + "_" + Integer.toString(slot));
+        return new Instruction(opcode, Integer.toString(slot));
+    }
+
+    private ArrayList<Type> constructorArgTypes(String className) {
+        try {
+            ClassSymbolTableItem classSymbolTableItem = (ClassSymbolTableItem) context.getRoot().getItem(ClassSymbolTableItem.START_KEY + className, true);
+            MethodSymbolTableItem methodSymbolTableItem = classSymbolTableItem.getMethod(className);
+            return methodSymbolTableItem.getArgTypes();
+        } catch (ItemNotFoundException noConstructor) {
+            return new ArrayList<>();
         }
-        for (int i = 0; i < currentSlot.size(); i++)
-            if (currentSlot.get(i).equals(identifier))
+    }
+
+    //the method a call on obj.name refers to, null when the callee is a function pointer value
+    private MethodSymbolTableItem classMethodOf(Expression instance) {
+        if (!(instance instanceof ObjectOrListMemberAccess))
+            return null;
+        ObjectOrListMemberAccess memberAccess = (ObjectOrListMemberAccess) instance;
+        Type instanceType = memberAccess.getInstance().accept(expressionTypeChecker);
+        if (!(instanceType instanceof ClassType))
+            return null;
+        String className = ((ClassType) instanceType).getClassName().getName();
+        try {
+            ClassSymbolTableItem classSymbolTableItem = (ClassSymbolTableItem) context.getRoot().getItem(ClassSymbolTableItem.START_KEY + className, true);
+            return classSymbolTableItem.getMethod(memberAccess.getMemberName().getName());
+        } catch (ItemNotFoundException memberIsField) {
+            return null;
+        }
+    }
+
+    private String methodDescriptor(ArrayList<Type> argTypes, Type returnType) {
+        String argString = "";
+        for (Type argType : argTypes)
+            argString += makeTypeSignature(argType);
+        return "(" + argString + ")" + makeTypeSignature(returnType);
+    }
+
+    private String functionalInterfaceOf(FptrType fptrType) {
+        String descriptor = methodDescriptor(fptrType.getArgumentsTypes(), fptrType.getReturnType());
+        String interfaceName = functionalInterfaces.get(descriptor);
+        if (interfaceName == null) {
+            interfaceName = "Fptr$" + Integer.toString(functionalInterfaces.size());
+            functionalInterfaces.put(descriptor, interfaceName);
+        }
+        return interfaceName;
+    }
+
+    private void addFunctionalInterfaces() {
+        for (Map.Entry<String, String> functionalInterface : functionalInterfaces.entrySet()) {
+            classBackend.beginInterface(functionalInterface.getValue());
+            classBackend.addAbstractMethod("call", functionalInterface.getKey());
+            classBackend.endClass();
+        }
+    }
+
+    //class and fptr elements erase to Object so that list subtyping keeps the same runtime class
+    private String erasedSignatureOf(Type type) {
+        if (isPrimitive(type) || (type instanceof StringType) || (type instanceof ListType))
+            return makeTypeSignature(type);
+        return "Ljava/lang/Object;";
+    }
+
+    private boolean isTuple(ListType listType) {
+        ArrayList<ListNameType> elementsTypes = listType.getElementsTypes();
+        for (ListNameType listNameType : elementsTypes)
+            if (!erasedSignatureOf(listNameType.getType()).equals(erasedSignatureOf(elementsTypes.get(0).getType())))
+                return true;
+        return false;
+    }
+
+    //descriptor of the elements of a list that only has ints or only has bools, null for other lists
+    private String primitiveElementOf(ListType listType) {
+        ArrayList<ListNameType> elementsTypes = listType.getElementsTypes();
+        if (elementsTypes.isEmpty() || isTuple(listType) || !isPrimitive(elementsTypes.get(0).getType()))
+            return null;
+        return makeTypeSignature(elementsTypes.get(0).getType());
+    }
+
+    //IntList and BoolList keep ints and bools unboxed, List when every other element erases to the same descriptor,
+    //a generated tuple class otherwise
+    private String listClassOf(ListType listType) {
+        String element = primitiveElementOf(listType);
+        if (element != null)
+            return element.equals("I") ? "IntList" : "BoolList";
+        if (!isTuple(listType))
+            return "List";
+        String elementsDescriptor = "";
+        for (ListNameType listNameType : listType.getElementsTypes())
+            elementsDescriptor += erasedSignatureOf(listNameType.getType());
+        String tupleClass = tupleClasses.get(elementsDescriptor);
+        if (tupleClass == null) {
+            tupleClass = "Tuple$" + Integer.toString(tupleTypes.size());
+            tupleClasses.put(elementsDescriptor, tupleClass);
+            tupleTypes.add(listType);
+        }
+        return tupleClass;
+    }
+
+    private String tupleConstructorDescriptor(ListType listType) {
+        String argString = "";
+        for (ListNameType listNameType : listType.getElementsTypes())
+            argString += erasedSignatureOf(listNameType.getType());
+        return "(" + argString + ")V";
+    }
+
+    private String tupleFieldOf(ListType listType, int index) {
+        return listClassOf(listType) + "/e" + Integer.toString(index) + " " + erasedSignatureOf(listType.getElementsTypes().get(index).getType());
+    }
+
+    //lists are values, stored lists are copied unless they were just created, List.copy only shares the elements
+    private InstructionList copyList(ListType listType) {
+        InstructionList commands = new InstructionList();
+        String listClass = listClassOf(listType);
+        if (isTuple(listType)) {
+            commands.add("invokevirtual", listClass + "/copy()LTuple;");
+            commands.add("checkcast", listClass);
+        } else {
+            commands.add("invokevirtual", listClass + "/copy()L" + listClass + ";");
+        }
+        return commands;
+    }
+
+    private InstructionList copiedValue(Expression element, Type type) {
+        InstructionList commands = element.accept(this);
+        if ((type instanceof ListType) && !(element instanceof ListValue))
+            commands.addAll(copyList((ListType) type));
+        return commands;
+    }
+
+    private void addTupleClass(String tupleClass, ListType listType) {
+        ArrayList<ListNameType> elementsTypes = listType.getElementsTypes();
+        this.currentClassName = tupleClass;
+        classBackend.beginClass(tupleClass, "Tuple");
+        for (int i = 0; i < elementsTypes.size(); i++)
+            classBackend.addField("e" + Integer.toString(i), erasedSignatureOf(elementsTypes.get(i).getType()));
+
+        beginMethod();
+        addCommand("aload_0");
+        addCommand("invokespecial", "Tuple/<init>()V");
+        for (int i = 0; i < elementsTypes.size(); i++) {
+            int slot = declareSlot("e" + Integer.toString(i));
+            addCommand("aload_0");
+            currentCode.add(slotCommand(loadOpcodeOf(elementsTypes.get(i).getType()), slot));
+            addCommand("putfield", tupleFieldOf(listType, i));
+        }
+        addCommand("return");
+        endMethod("public", "<init>", tupleConstructorDescriptor(listType));
+
+        beginMethod();
+        addCommand("new", tupleClass);
+        addCommand("dup");
+        for (int i = 0; i < elementsTypes.size(); i++) {
+            addCommand("aload_0");
+            addCommand("getfield", tupleFieldOf(listType, i));
+            if (elementsTypes.get(i).getType() instanceof ListType)
+                addCommands(copyList((ListType) elementsTypes.get(i).getType()));
+        }
+        addCommand("invokespecial", tupleClass + "/<init>" + tupleConstructorDescriptor(listType));
+        addCommand("areturn");
+        endMethod("public", "copy", "()LTuple;");
+        classBackend.endClass();
+    }
+
+    //tuple classes can add the classes of their nested lists while they are generated
+    private void addTupleClasses() {
+        for (int i = 0; i < tupleTypes.size(); i++)
+            addTupleClass("Tuple$" + Integer.toString(i), tupleTypes.get(i));
+    }
+
+    private int listMemberIndex(ListType listType, String memberName) {
+        ArrayList<ListNameType> elementsTypes = listType.getElementsTypes();
+        for (int i = 0; i < elementsTypes.size(); i++)
+            if (elementsTypes.get(i).getName().getName().equals(memberName))
                 return i;
         return 0;
     }
 
-    private String betweenSlot(int slot) {
-        if (slot > 4)
-            return " ";
+    //the list type an element lvalue belongs to, null for locals and class fields
+    private ListType containingListOf(Expression lvalue) {
+        Expression instance;
+        if (lvalue instanceof ListAccessByIndex)
+            instance = ((ListAccessByIndex) lvalue).getInstance();
+        else if (lvalue instanceof ObjectOrListMemberAccess)
+            instance = ((ObjectOrListMemberAccess) lvalue).getInstance();
         else
-            return "_";
+            return null;
+        Type instanceType = instance.accept(expressionTypeChecker);
+        if (instanceType instanceof ListType)
+            return (ListType) instanceType;
+        return null;
+    }
+
+    private boolean isListElement(Expression lvalue) {
+        ListType listType = containingListOf(lvalue);
+        return listType != null && !isTuple(listType);
+    }
+
+    private boolean isTupleElement(Expression lvalue) {
+        ListType listType = containingListOf(lvalue);
+        return listType != null && isTuple(listType);
+    }
+
+    //the type checker only allows constant indexes on lists with elements of different types
+    private int tupleIndexOf(Expression lvalue) {
+        if (lvalue instanceof ListAccessByIndex)
+            return ((IntValue) ((ListAccessByIndex) lvalue).getIndex()).getConstant();
+        return listMemberIndex(containingListOf(lvalue), ((ObjectOrListMemberAccess) lvalue).getMemberName().getName());
+    }
+
+    //a constant index past the end of a list with elements of different types, only fails when it runs
+    private boolean isMissingTupleElement(Expression lvalue) {
+        return isTupleElement(lvalue) && tupleIndexOf(lvalue) >= containingListOf(lvalue).getElementsTypes().size();
+    }
+
+    //pushes what a store into lvalue needs under the value: nothing for locals, the object for fields
+    //and the list and the index for list elements
+    private InstructionList lvalueTarget(Expression lvalue) {
+        InstructionList commands = new InstructionList();
+        if (isTupleElement(lvalue)) {
+            Expression instance = (lvalue instanceof ListAccessByIndex) ? ((ListAccessByIndex) lvalue).getInstance() : ((ObjectOrListMemberAccess) lvalue).getInstance();
+            commands.addAll(mutableInstance(instance));
+            if (isMissingTupleElement(lvalue)) {
+                commands.add("new", "java/lang/IndexOutOfBoundsException");
+                commands.add("dup");
+                commands.add("invokespecial", "java/lang/IndexOutOfBoundsException/<init>()V");
+                commands.add("athrow");
+            }
+        } else if (lvalue instanceof ListAccessByIndex) {
+            commands.addAll(mutableInstance(((ListAccessByIndex) lvalue).getInstance()));
+            commands.addAll(((ListAccessByIndex) lvalue).getIndex().accept(this));
+        } else if (isListElement(lvalue)) {
+            ObjectOrListMemberAccess memberAccess = (ObjectOrListMemberAccess) lvalue;
+            commands.addAll(mutableInstance(memberAccess.getInstance()));
+            commands.addAll(intConstant(listMemberIndex(containingListOf(lvalue), memberAccess.getMemberName().getName())));
+        } else if (lvalue instanceof ObjectOrListMemberAccess) {
+            commands.addAll(((ObjectOrListMemberAccess) lvalue).getInstance().accept(this));
+        }
+        return commands;
+    }
+
+    //evaluates a list that is about to be written, shared List elements on the way to it are copied first
+    private InstructionList mutableInstance(Expression instance) {
+        if (isListElement(instance)) {
+            InstructionList commands = lvalueTarget(instance);
+            commands.add("invokevirtual", "List/getMutableElement(I)Ljava/lang/Object;");
+            commands.addAll(castFromObject(instance.accept(expressionTypeChecker)));
+            return commands;
+        }
+        if (isTupleElement(instance)) {
+            InstructionList commands = lvalueTarget(instance);
+            commands.addAll(loadFromTarget(instance));
+            return commands;
+        }
+        return instance.accept(this);
+    }
+
+    private String duplicateTarget(Expression lvalue) {
+        if (lvalue instanceof Identifier)
+            return null;
+        if (isListElement(lvalue))
+            return "dup2";
+        return "dup";
+    }
+
+    //duplicates the value on top of the stack under the target so it stays as the result of the expression
+    private String duplicateValueUnderTarget(Expression lvalue) {
+        if (lvalue instanceof Identifier)
+            return "dup";
+        if (isListElement(lvalue))
+            return "dup_x2";
+        return "dup_x1";
+    }
+
+    private String fieldOf(ObjectOrListMemberAccess memberAccess) {
+        ClassType instanceType = (ClassType) memberAccess.getInstance().accept(expressionTypeChecker);
+        Type memberType = memberAccess.accept(expressionTypeChecker);
+        return instanceType.getClassName().getName() + "/" + memberAccess.getMemberName().getName() + " " + makeTypeSignature(memberType);
+    }
+
+    //consumes a list that is not a tuple and an index, and pushes the unboxed element
+    private InstructionList loadElement(ListType listType, Type elementType) {
+        InstructionList commands = new InstructionList();
+        if (primitiveElementOf(listType) != null) {
+            commands.add("invokevirtual", listClassOf(listType) + "/get(I)" + makeTypeSignature(elementType));
+        } else {
+            commands.add("invokevirtual", "List/getElement(I)Ljava/lang/Object;");
+            commands.addAll(castFromObject(elementType));
+        }
+        return commands;
+    }
+
+    //consumes the target and pushes the unboxed value of lvalue
+    private InstructionList loadFromTarget(Expression lvalue) {
+        InstructionList commands = new InstructionList();
+        Type type = lvalue.accept(expressionTypeChecker);
+        if (lvalue instanceof Identifier) {
+            commands.add(slotCommand(loadOpcodeOf(type), slotOf(((Identifier) lvalue).getName())));
+        } else if (isMissingTupleElement(lvalue)) {
+            //never runs, the target already threw, the value only keeps the stack the same on every path
+            commands.add("pop");
+            commands.add(isPrimitive(type) ? "iconst_0" : "aconst_null");
+        } else if (isTupleElement(lvalue)) {
+            commands.add("getfield", tupleFieldOf(containingListOf(lvalue), tupleIndexOf(lvalue)));
+            if (erasedSignatureOf(type).equals("Ljava/lang/Object;"))
+                commands.addAll(castFromObject(type));
+        } else if (isListElement(lvalue)) {
+            commands.addAll(loadElement(containingListOf(lvalue), type));
+        } else if (lvalue instanceof ObjectOrListMemberAccess) {
+            commands.add("getfield", fieldOf((ObjectOrListMemberAccess) lvalue));
+        }
+        return commands;
+    }
+
+    //consumes the target and the unboxed value
+    private InstructionList storeToTarget(Expression lvalue) {
+        InstructionList commands = new InstructionList();
+        Type type = lvalue.accept(expressionTypeChecker);
+        if (lvalue instanceof Identifier) {
+            commands.add(slotCommand(storeOpcodeOf(type), slotOf(((Identifier) lvalue).getName())));
+        } else if (isMissingTupleElement(lvalue)) {
+            commands.add("pop");
+            commands.add("pop");
+        } else if (isTupleElement(lvalue)) {
+            commands.add("putfield", tupleFieldOf(containingListOf(lvalue), tupleIndexOf(lvalue)));
+        } else if (isListElement(lvalue) && primitiveElementOf(containingListOf(lvalue)) != null) {
+            commands.add("invokevirtual", listClassOf(containingListOf(lvalue)) + "/set(I" + makeTypeSignature(type) + ")V");
+        } else if (isListElement(lvalue)) {
+            commands.addAll(box(type));
+            commands.add("invokevirtual", "List/setElement(ILjava/lang/Object;)V");
+        } else if (lvalue instanceof ObjectOrListMemberAccess) {
+            commands.add("putfield", fieldOf((ObjectOrListMemberAccess) lvalue));
+        }
+        return commands;
+    }
+
+    private InstructionList assign(Expression lvalue, Expression rvalue) {
+        InstructionList commands = lvalueTarget(lvalue);
+        Type type = lvalue.accept(expressionTypeChecker);
+        commands.addAll(copiedValue(rvalue, type));
+        commands.add(duplicateValueUnderTarget(lvalue));
+        commands.addAll(storeToTarget(lvalue));
+        return commands;
+    }
+
+    private InstructionList incDec(Expression lvalue, UnaryOperator operator) {
+        InstructionList commands = lvalueTarget(lvalue);
+        if (duplicateTarget(lvalue) != null)
+            commands.add(duplicateTarget(lvalue));
+        commands.addAll(loadFromTarget(lvalue));
+        String operation = (operator == UnaryOperator.preinc || operator == UnaryOperator.postinc) ? "iadd" : "isub";
+        if (operator == UnaryOperator.postinc || operator == UnaryOperator.postdec)
+            commands.add(duplicateValueUnderTarget(lvalue));
+        commands.add("iconst_1");
+        commands.add(operation);
+        if (operator == UnaryOperator.preinc || operator == UnaryOperator.predec)
+            commands.add(duplicateValueUnderTarget(lvalue));
+        commands.addAll(storeToTarget(lvalue));
+        return commands;
+    }
+
+    //list arguments are copied like any stored list
+    private InstructionList arguments(ArrayList<Expression> args) {
+        InstructionList commands = new InstructionList();
+        for (Expression arg : args)
+            commands.addAll(copiedValue(arg, arg.accept(expressionTypeChecker)));
+        return commands;
     }
 
     @Override
-    public String visit(Program program) {
+    public InstructionList visit(Program program) {
         ArrayList<ClassDeclaration> classes = program.getClasses();
         for (ClassDeclaration classDec : classes) {
             this.currentClass = classDec;
             this.expressionTypeChecker.setCurrentClass(classDec);
             classDec.accept(this);
         }
+        addFunctionalInterfaces();
+        addTupleClasses();
         return null;
     }
 
     @Override
-    public String visit(ClassDeclaration classDeclaration) {
-        createFile(classDeclaration.getClassName().getName());
-        addCommand(".class " + classDeclaration.getClassName().getName());
-        if (classDeclaration.getParentClassName() == null)
-            addCommand(".super java/lang/Object");
-        else
-            addCommand(".super " + classDeclaration.getParentClassName().getName());
-        addCommand("");
+    public InstructionList visit(ClassDeclaration classDeclaration) {
+        this.currentClassName = classDeclaration.getClassName().getName();
+        classBackend.beginClass(currentClassName, superClassName());
 
         for (FieldDeclaration fieldDec : classDeclaration.getFields())
             fieldDec.accept(this);
@@ -266,11 +782,12 @@ public class CodeGenerator extends Visitor<String> {
         }
         if (classDeclaration.getClassName().getName().equals("Main"))
             addStaticMainMethod();
+        classBackend.endClass();
         return null;
     }
 
     @Override
-    public String visit(ConstructorDeclaration constructorDeclaration) {
+    public InstructionList visit(ConstructorDeclaration constructorDeclaration) {
         if (constructorDeclaration.getArgs().size() != 0)
             addDefaultConstructor();
         this.visit((MethodDeclaration) constructorDeclaration);
@@ -278,135 +795,183 @@ public class CodeGenerator extends Visitor<String> {
     }
 
     @Override
-    public String visit(MethodDeclaration methodDeclaration) {
-        currentSlot.clear();
-        currentSlot.add("this");
+    public InstructionList visit(MethodDeclaration methodDeclaration) {
+        beginMethod();
 
+        String argString = "";
+        for (VarDeclaration varDeclaration : methodDeclaration.getArgs())
+            argString += makeTypeSignature(varDeclaration.getType());
+        String methodName;
+        String descriptor;
         if (methodDeclaration instanceof ConstructorDeclaration) {
-            String argString = "";
-            for (VarDeclaration varDeclaration : methodDeclaration.getArgs())
-                argString += makeTypeSignature(varDeclaration.getType());
-            addCommand(".method <init>(" + argString + ')' + 'V' + '\n' + methodHeader);
+            methodName = "<init>";
+            descriptor = "(" + argString + ")V";
             addCommand("aload_0");
-            if (this.currentClass.getParentClassName() == null)
-                addCommand("invokespecial java/lang/Object/<init>()V");
-            else
-                addCommand("invokespecial " + currentClass.getParentClassName().getName() + "/<init>()V");
-
-            for (FieldDeclaration fieldDeclaration : currentClass.getFields()) {
-                addCommand("aload_0");
-                initializeType(fieldDeclaration.getVarDeclaration().getType());
-                addCommand("putfield " + currentClass.getClassName().getName() + "/" + fieldDeclaration.getVarDeclaration().getVarName().getName() + " " + makeTypeSignature(fieldDeclaration.getVarDeclaration().getType()));
-            }
+            addCommand("invokespecial", superClassName() + "/<init>()V");
+            initializeFields();
         } else {
-            String argString = "";
-            for (VarDeclaration varDeclaration : methodDeclaration.getArgs())
-                argString += makeTypeSignature(varDeclaration.getType());
-            String returnString = makeTypeSignature(methodDeclaration.getReturnType());
-            addCommand(".method " + methodDeclaration.getMethodName().getName() + "(" + argString + ")" + returnString + '\n' + methodHeader);
+            methodName = methodDeclaration.getMethodName().getName();
+            descriptor = "(" + argString + ")" + makeTypeSignature(methodDeclaration.getReturnType());
         }
         for (VarDeclaration varDeclaration : methodDeclaration.getArgs())
-            currentSlot.add(varDeclaration.getVarName().getName());
+            declareSlot(varDeclaration.getVarName().getName());
         for (VarDeclaration varDeclaration : methodDeclaration.getLocalVars())
             varDeclaration.accept(this);
         for (Statement statement : methodDeclaration.getBody())
             statement.accept(this);
 
-        if (!methodDeclaration.getDoesReturn())
+        Instruction last = currentCode.getLast();
+        if ((methodDeclaration instanceof ConstructorDeclaration) || (methodDeclaration.getReturnType() instanceof NullType)) {
             addCommand("return");
-        addCommand(".end method");
-        addCommand("");
+        } else if (last == null || last.isLabel() || !last.getOpcode().endsWith("return")) {
+            //only reached when every path returned before, the verifier still needs an instruction here
+            Type returnType = methodDeclaration.getReturnType();
+            addCommand(isPrimitive(returnType) ? "iconst_0" : "aconst_null");
+            addCommand(returnOpcodeOf(returnType));
+        }
+        endMethod("public", methodName, descriptor);
         return null;
     }
 
     @Override
-    public String visit(FieldDeclaration fieldDeclaration) {
-        //todo
-        String command = "";
-        command += ".field ";
-        command += fieldDeclaration.getVarDeclaration().getVarName().getName() + ' ';
-        command += makeTypeSignature(fieldDeclaration.getVarDeclaration().getType());
-        addCommand(command);
+    public InstructionList visit(FieldDeclaration fieldDeclaration) {
+        classBackend.addField(fieldDeclaration.getVarDeclaration().getVarName().getName(), makeTypeSignature(fieldDeclaration.getVarDeclaration().getType()));
         return null;
     }
 
     @Override
-    public String visit(VarDeclaration varDeclaration) {
-        int slot = currentSlot.size();
-        currentSlot.add(varDeclaration.getVarName().getName());
-        initializeType(varDeclaration.getType());
-        addCommand("astore" + betweenSlot(slot) + slot);
+    public InstructionList visit(VarDeclaration varDeclaration) {
+        int slot = declareSlot(varDeclaration.getVarName().getName());
+        addCommands(initializeType(varDeclaration.getType()));
+        currentCode.add(slotCommand(storeOpcodeOf(varDeclaration.getType()), slot));
         return null;
     }
 
     @Override
-    public String visit(AssignmentStmt assignmentStmt) {
-        //todo
-        BinaryExpression binaryExpression = new BinaryExpression(assignmentStmt.getlValue(), assignmentStmt.getrValue(), BinaryOperator.assign);
-        addCommand(binaryExpression.accept(this));
+    public InstructionList visit(AssignmentStmt assignmentStmt) {
+        addCommands(assign(assignmentStmt.getlValue(), assignmentStmt.getrValue()));
         addCommand("pop");
         return null;
     }
 
     @Override
-    public String visit(BlockStmt blockStmt) {
-        //todo
+    public InstructionList visit(BlockStmt blockStmt) {
         for (Statement stmt : blockStmt.getStatements()) {
             stmt.accept(this);
         }
         return null;
     }
 
-    void branch(Expression condition, String trueString, String falseString) {
+    //jumps to target when condition is jumpWhen and falls through otherwise
+    private InstructionList jump(Expression condition, boolean jumpWhen, String target) {
+        InstructionList commands = new InstructionList();
+        BinaryOperator operator = (condition instanceof BinaryExpression) ? ((BinaryExpression) condition).getBinaryOperator() : null;
         if (condition instanceof BoolValue) {
-            if (((BoolValue) condition).getConstant())
-                addCommand("goto " + trueString);
-            else
-                addCommand("goto " + falseString);
-        } else if (condition instanceof BinaryExpression) {
+            if (((BoolValue) condition).getConstant() == jumpWhen)
+                commands.add("goto", target);
+        } else if (condition instanceof UnaryExpression &&
+                ((UnaryExpression) condition).getOperator() == UnaryOperator.not) {
+            commands.addAll(jump(((UnaryExpression) condition).getOperand(), !jumpWhen, target));
+        } else if ((operator == BinaryOperator.and) || (operator == BinaryOperator.or)) {
             BinaryExpression binaryExpression = (BinaryExpression) condition;
-            if (binaryExpression.getBinaryOperator() == BinaryOperator.and) {
-                labelCounter += 1;
-                branch(binaryExpression.getFirstOperand(), "Label" + Integer.toString(labelCounter - 1), falseString);
-                addCommand("Label" + Integer.toString(labelCounter - 1) + ":");
-                branch(binaryExpression.getSecondOperand(), trueString, falseString);
-            } else if (binaryExpression.getBinaryOperator() == BinaryOperator.or) {
-                labelCounter += 1;
-                branch(binaryExpression.getFirstOperand(), trueString, "Label" + Integer.toString(labelCounter - 1));
-                addCommand("Label" + Integer.toString(labelCounter - 1) + ":");
-                branch(binaryExpression.getSecondOperand(), trueString, falseString);
+            //the first operand decides the result when it is false for and, and when it is true for or
+            boolean decidingValue = (operator == BinaryOperator.or);
+            if (decidingValue == jumpWhen) {
+                commands.addAll(jump(binaryExpression.getFirstOperand(), jumpWhen, target));
+                commands.addAll(jump(binaryExpression.getSecondOperand(), jumpWhen, target));
             } else {
-                addCommand(((BinaryExpression) condition).accept(this));
-                addCommand("ifeq " + falseString);
-                addCommand("goto " + trueString);
-            }
-        } else if (condition instanceof UnaryExpression) {
-            if (((UnaryExpression) condition).getOperator() == UnaryOperator.not)
-                branch(((UnaryExpression) condition).getOperand(), falseString, trueString);
-            else {
-                ((UnaryExpression) condition).getOperand().accept(this);
-                addCommand("ifeq " + falseString);
-                addCommand("goto " + trueString);
+                String skipLabel = newLabel();
+                commands.addAll(jump(binaryExpression.getFirstOperand(), decidingValue, skipLabel));
+                commands.addAll(jump(binaryExpression.getSecondOperand(), jumpWhen, target));
+                commands.addLabel(skipLabel);
             }
+        } else if ((operator == BinaryOperator.lt) || (operator == BinaryOperator.gt) ||
+                (operator == BinaryOperator.eq) || (operator == BinaryOperator.neq)) {
+            commands.addAll(compareAndJump((BinaryExpression) condition, jumpWhen, target));
+        } else {
+            commands.addAll(condition.accept(this));
+            commands.add(jumpWhen ? "ifne" : "ifeq", target);
+        }
+        return commands;
+    }
+
+    //a single conditional jump on the operands, comparisons with 0 and null test the first operand alone
+    private InstructionList compareAndJump(BinaryExpression comparison, boolean jumpWhen, String target) {
+        InstructionList commands = new InstructionList();
+        BinaryOperator operator = comparison.getBinaryOperator();
+        Expression first = comparison.getFirstOperand();
+        Expression second = comparison.getSecondOperand();
+        Type firstType = first.accept(expressionTypeChecker);
+        boolean jumpsOnEquality = ((operator == BinaryOperator.eq) == jumpWhen);
+        commands.addAll(first.accept(this));
+        if (firstType instanceof StringType) {
+            commands.addAll(second.accept(this));
+            commands.add("invokevirtual", "java/lang/String/equals(Ljava/lang/Object;)Z");
+            commands.add(jumpsOnEquality ? "ifne" : "ifeq", target);
+        } else if (isPrimitive(firstType)) {
+            boolean isZero = ((second instanceof IntValue) && (((IntValue) second).getConstant() == 0)) ||
+                    ((second instanceof BoolValue) && !((BoolValue) second).getConstant());
+            if (!isZero)
+                commands.addAll(second.accept(this));
+            commands.add((isZero ? "if" : "if_icmp") + conditionOf(operator, jumpWhen), target);
+        } else if (second instanceof NullValue) {
+            commands.add(jumpsOnEquality ? "ifnull" : "ifnonnull", target);
+        } else {
+            commands.addAll(second.accept(this));
+            commands.add("if_acmp" + conditionOf(operator, jumpWhen), target);
         }
+        return commands;
+    }
+
+    //suffix of the branch opcodes that jump when the comparison is jumpWhen
+    private String conditionOf(BinaryOperator operator, boolean jumpWhen) {
+        switch (operator) {
+            case lt:
+                return jumpWhen ? "lt" : "ge";
+            case gt:
+                return jumpWhen ? "gt" : "le";
+            case eq:
+                return jumpWhen ? "eq" : "ne";
+            default:
+                return jumpWhen ? "ne" : "eq";
+        }
+    }
+
+    //pushes 1 when condition holds and 0 otherwise
+    private InstructionList materialize(Expression condition) {
+        InstructionList commands = new InstructionList();
+        String falseLabel = newLabel();
+        String endLabel = newLabel();
+        commands.addAll(jump(condition, false, falseLabel));
+        commands.add("iconst_1");
+        commands.add("goto", endLabel);
+        commands.addLabel(falseLabel);
+        commands.add("iconst_0");
+        commands.addLabel(endLabel);
+        return commands;
     }
 
     @Override
-    public String visit(ConditionalStmt conditionalStmt) {
-        labelCounter += 2;
-        branch(conditionalStmt.getCondition(), "Label" + Integer.toString(labelCounter - 2), "Label" + Integer.toString(labelCounter - 1));
-        addCommand("Label" + Integer.toString(labelCounter - 2) + ":");
+    public InstructionList visit(ConditionalStmt conditionalStmt) {
+        String elseLabel = newLabel();
+        addCommands(jump(conditionalStmt.getCondition(), false, elseLabel));
         conditionalStmt.getThenBody().accept(this);
-        addCommand("Label" + Integer.toString(labelCounter - 1) + ":");
-        if (conditionalStmt.getElseBody() != null)
-            conditionalStmt.getElseBody().accept(this);
+        if (conditionalStmt.getElseBody() == null) {
+            addLabel(elseLabel);
+            return null;
+        }
+        String endLabel = newLabel();
+        addCommand("goto", endLabel);
+        addLabel(elseLabel);
+        conditionalStmt.getElseBody().accept(this);
+        addLabel(endLabel);
         return null;
     }
 
     @Override
-    public String visit(MethodCallStmt methodCallStmt) {
+    public InstructionList visit(MethodCallStmt methodCallStmt) {
         expressionTypeChecker.setIsInMethodCallStmt(true);
-        addCommand(methodCallStmt.getMethodCall().accept(this));
+        addCommands(methodCallStmt.getMethodCall().accept(this));
         expressionTypeChecker.setIsInMethodCallStmt(false);
         if (!(((FptrType) methodCallStmt.getMethodCall().getInstance().accept(expressionTypeChecker)).getReturnType() instanceof NullType))
             addCommand("pop");
@@ -414,408 +979,364 @@ public class CodeGenerator extends Visitor<String> {
     }
 
     @Override
-    public String visit(PrintStmt print) {
-        addCommand("getstatic java/lang/System/out Ljava/io/PrintStream;");
-        String expressionString = print.getArg().accept(this);
-        addCommand(expressionString);
+    public InstructionList visit(PrintStmt print) {
+        addCommand("getstatic", "java/lang/System/out Ljava/io/PrintStream;");
+        addCommands(print.getArg().accept(this));
         Type expressionType = print.getArg().accept(expressionTypeChecker);
-        if (expressionTypeChecker.isSameType(expressionType, new IntType()) || expressionTypeChecker.isSameType(expressionType, new BoolType()))
-            addCommand("invokevirtual java/io/PrintStream/print(I)V");
-        else if (expressionTypeChecker.isSameType(expressionType, new StringType()))
-            addCommand("invokevirtual java/io/PrintStream/print(Ljava/lang/String;)V");
+        if (expressionType instanceof IntType)
+            addCommand("invokevirtual", "java/io/PrintStream/print(I)V");
+        else if (expressionType instanceof BoolType)
+            addCommand("invokevirtual", "java/io/PrintStream/print(Z)V");
+        else if (expressionType instanceof StringType)
+            addCommand("invokevirtual", "java/io/PrintStream/print(Ljava/lang/String;)V");
         return null;
     }
 
     @Override
-    public String visit(ReturnStmt returnStmt) {
-        Type type = returnStmt.getReturnedExpr().accept(expressionTypeChecker);
+    public InstructionList visit(ReturnStmt returnStmt) {
+        Type type = currentMethod.getReturnType();
         if (type instanceof NullType) {
             addCommand("return");
-        } else if (type instanceof IntType) {
-            addCommand("new java/lang/Integer");
-            addCommand("dup");
-            addCommand(returnStmt.getReturnedExpr().accept(this));
-            addCommand("invokespecial java/lang/Integer/<init>(I)V");
-            addCommand("areturn");
-        } else if (type instanceof BoolType) {
-            addCommand("new java/lang/Boolean");
-            addCommand("dup");
-            addCommand(returnStmt.getReturnedExpr().accept(this));
-            addCommand("invokespecial java/lang/Boolean/<init>(Z)V");
-            addCommand("areturn");
         } else {
-            addCommand(returnStmt.getReturnedExpr().accept(this));
-            addCommand("areturn");
+            addCommands(returnStmt.getReturnedExpr().accept(this));
+            addCommand(returnOpcodeOf(type));
         }
         return null;
     }
 
     @Override
-    public String visit(BreakStmt breakStmt) {
-        addCommand("goto " + breakLabels.get(breakLabels.size() - 1));
+    public InstructionList visit(BreakStmt breakStmt) {
+        addCommand("goto", breakLabels.get(breakLabels.size() - 1));
         return null;
     }
 
     @Override
-    public String visit(ContinueStmt continueStmt) {
-        addCommand("goto " + continueLabels.get(continueLabels.size() - 1));
+    public InstructionList visit(ContinueStmt continueStmt) {
+        addCommand("goto", continueLabels.get(continueLabels.size() - 1));
         return null;
     }
 
     @Override
-    public String visit(ForeachStmt foreachStmt) {
-        //todo
+    public InstructionList visit(ForeachStmt foreachStmt) {
+        ListType listType = (ListType) foreachStmt.getList().accept(expressionTypeChecker);
+        Type variableType = foreachStmt.getVariable().accept(expressionTypeChecker);
+        int size = listType.getElementsTypes().size();
+        //lists have a fixed size, so the loop counts up to a constant over the list evaluated once
+        //and the body runs before the first test unless the list is empty
+        int listSlot = newTemporarySlot();
+        int indexSlot = newTemporarySlot();
+        String bodyLabel = newLabel();
+        String continueLabel = newLabel();
+        String breakLabel = newLabel();
+
+        addCommands(foreachStmt.getList().accept(this));
+        if (size == 0) {
+            addCommand("pop");
+            return null;
+        }
+        currentCode.add(slotCommand("astore", listSlot));
+        addCommand("iconst_0");
+        currentCode.add(slotCommand("istore", indexSlot));
+
+        addLabel(bodyLabel);
+        currentCode.add(slotCommand("aload", listSlot));
+        currentCode.add(slotCommand("iload", indexSlot));
+        addCommands(loadElement(listType, variableType));
+        if (variableType instanceof ListType)
+            addCommands(copyList((ListType) variableType));
+        currentCode.add(slotCommand(storeOpcodeOf(variableType), slotOf(foreachStmt.getVariable().getName())));
+
+        if (foreachStmt.getBody() != null) {
+            continueLabels.add(continueLabel);
+            breakLabels.add(breakLabel);
+            foreachStmt.getBody().accept(this);
+            continueLabels.remove(continueLabels.size() - 1);
+            breakLabels.remove(breakLabels.size() - 1);
+        }
+
+        addLabel(continueLabel);
+        addCommand("iinc", Integer.toString(indexSlot) + " 1");
+        currentCode.add(slotCommand("iload", indexSlot));
+        addCommands(intConstant(size));
+        addCommand("if_icmplt", bodyLabel);
+
+        addLabel(breakLabel);
         return null;
     }
 
     @Override
-    public String visit(ForStmt forStmt) {
-        this.labelCounter += 4;
+    public InstructionList visit(ForStmt forStmt) {
+        String conditionLabel = newLabel();
+        String bodyLabel = newLabel();
+        String continueLabel = newLabel();
+        String breakLabel = newLabel();
 
         if (forStmt.getInitialize() != null)
-            addCommand(forStmt.getInitialize().accept(this));
-
-        addCommand("Label" + Integer.toString(this.labelCounter - 3) + ":");
-        if (forStmt.getCondition() != null)
-            branch(forStmt.getCondition(), "Label" + Integer.toString(this.labelCounter), "Label" + Integer.toString(this.labelCounter - 1));
+            forStmt.getInitialize().accept(this);
 
-        addCommand("Label" + Integer.toString(this.labelCounter) + ":");
+        //the condition is tested at the bottom, so an iteration takes a single jump
+        addCommand("goto", conditionLabel);
+        addLabel(bodyLabel);
         if (forStmt.getBody() != null) {
-            continueLabels.add("Label" + Integer.toString(this.labelCounter - 2));
-            breakLabels.add("Label" + Integer.toString(this.labelCounter - 1));
+            continueLabels.add(continueLabel);
+            breakLabels.add(breakLabel);
             forStmt.getBody().accept(this);
             continueLabels.remove(continueLabels.size() - 1);
             breakLabels.remove(breakLabels.size() - 1);
         }
 
-        addCommand("Label" + Integer.toString(this.labelCounter - 2) + ":");
+        addLabel(continueLabel);
         if (forStmt.getUpdate() != null)
             forStmt.getUpdate().accept(this);
-        addCommand("goto Label" + Integer.toString(this.labelCounter - 3) + ":");
 
-        addCommand("Label" + Integer.toString(this.labelCounter - 1) + ":");
+        addLabel(conditionLabel);
+        if (forStmt.getCondition() != null)
+            addCommands(jump(forStmt.getCondition(), true, bodyLabel));
+        else
+            addCommand("goto", bodyLabel);
+        addLabel(breakLabel);
 
         return null;
     }
 
     @Override
-    public String visit(BinaryExpression binaryExpression) {
+    public InstructionList visit(BinaryExpression binaryExpression) {
         BinaryOperator operator = binaryExpression.getBinaryOperator();
-        String commands = "";
-        commands += binaryExpression.getFirstOperand().accept(this);
-        commands += binaryExpression.getSecondOperand().accept(this);
+        InstructionList commands = new InstructionList();
+        if (operator == BinaryOperator.assign)
+            return assign(binaryExpression.getFirstOperand(), binaryExpression.getSecondOperand());
+        Type firstType = binaryExpression.getFirstOperand().accept(expressionTypeChecker);
+        boolean isComparison = (operator == BinaryOperator.gt) || (operator == BinaryOperator.lt) ||
+                (operator == BinaryOperator.eq) || (operator == BinaryOperator.neq);
+        if ((operator == BinaryOperator.and) || (operator == BinaryOperator.or) || (isComparison && !(firstType instanceof StringType)))
+            return materialize(binaryExpression);
+        commands.addAll(binaryExpression.getFirstOperand().accept(this));
+        commands.addAll(binaryExpression.getSecondOperand().accept(this));
         if (operator == BinaryOperator.add) {
-            commands += "iadd\n";
+            commands.add("iadd");
         } else if (operator == BinaryOperator.sub) {
-            commands += "isub\n";
+            commands.add("isub");
         } else if (operator == BinaryOperator.mult) {
-            commands += "imul\n";
+            commands.add("imul");
         } else if (operator == BinaryOperator.div) {
-            commands += "idiv\n";
+            commands.add("idiv");
         } else if (operator == BinaryOperator.mod) {
-            commands += "irem\n";
-        } else if ((operator == BinaryOperator.gt) || (operator == BinaryOperator.lt)) {
-            commands += "if_icmp" + operator.toString() + " Label" + Integer.toString(this.labelCounter);
-            commands += '\n';
-            commands += "iconst_0\n";
-            commands += "goto Label" + Integer.toString(this.labelCounter + 1);
-            commands += '\n';
-            commands += "Label" + Integer.toString(this.labelCounter) + ":\n";
-            commands += "iconst_1\n";
-            commands += "Label" + Integer.toString(this.labelCounter + 1) + ":\n";
-            this.labelCounter += 2;
-        } else if ((operator == BinaryOperator.eq) || (operator == BinaryOperator.neq)) {
-            commands += "if_icmp" + operator.toString().substring(0, 2) + " Label" + Integer.toString(this.labelCounter);
-            commands += '\n';
-            commands += "iconst_0\n";
-            commands += "goto Label" + Integer.toString(this.labelCounter + 1);
-            commands += '\n';
-            commands += "Label" + Integer.toString(this.labelCounter) + ":\n";
-            commands += "iconst_1\n";
-            commands += "Label" + Integer.toString(this.labelCounter + 1) + ":\n";
-            this.labelCounter += 2;
-        } else if (operator == BinaryOperator.and) {
-            commands += "iand\n";
-        } else if (operator == BinaryOperator.or) {
-            commands += "ior\n";
-        } else if (operator == BinaryOperator.assign) {
-            Type firstType = binaryExpression.getFirstOperand().accept(expressionTypeChecker);
-            String secondOperandCommands = binaryExpression.getSecondOperand().accept(this);
-            if (firstType instanceof ListType) {
-                //todo make new list with List copy constructor with the second operand commands
-                // (add these commands to secondOperandCommands)
-            }
-            if (binaryExpression.getFirstOperand() instanceof Identifier) {
-                //todo
-            } else if (binaryExpression.getFirstOperand() instanceof ListAccessByIndex) {
-                //todo
-            } else if (binaryExpression.getFirstOperand() instanceof ObjectOrListMemberAccess) {
-                Expression instance = ((ObjectOrListMemberAccess) binaryExpression.getFirstOperand()).getInstance();
-                Type memberType = binaryExpression.getFirstOperand().accept(expressionTypeChecker);
-                String memberName = ((ObjectOrListMemberAccess) binaryExpression.getFirstOperand()).getMemberName().getName();
-                Type instanceType = instance.accept(expressionTypeChecker);
-                if (instanceType instanceof ListType) {
-                    //todo
-                } else if (instanceType instanceof ClassType) {
-                    //todo
-                }
+            commands.add("irem");
+        } else if (isComparison) {
+            commands.add("invokevirtual", "java/lang/String/equals(Ljava/lang/Object;)Z");
+            if (operator == BinaryOperator.neq) {
+                commands.add("iconst_1");
+                commands.add("ixor");
             }
         }
         return commands;
     }
 
     @Override
-    public String visit(UnaryExpression unaryExpression) {
+    public InstructionList visit(UnaryExpression unaryExpression) {
         UnaryOperator operator = unaryExpression.getOperator();
-        String commands = "";
-        commands += unaryExpression.getOperand().accept(this);
+        InstructionList commands = new InstructionList();
         if (operator == UnaryOperator.minus) {
-            commands += "ineg\n";
+            commands.addAll(unaryExpression.getOperand().accept(this));
+            commands.add("ineg");
         } else if (operator == UnaryOperator.not) {
-            commands += "ifeq" + " Label" + Integer.toString(this.labelCounter);
-            commands += '\n';
-            commands += "iconst_0\n";
-            commands += "goto Label" + Integer.toString(this.labelCounter + 1);
-            commands += '\n';
-            commands += "Label" + Integer.toString(this.labelCounter) + ":\n";
-            commands += "iconst_1\n";
-            commands += "Label" + Integer.toString(this.labelCounter + 1) + ":\n";
-            this.labelCounter += 2;
-        } else if ((operator == UnaryOperator.predec) || (operator == UnaryOperator.preinc)) {
-            if (unaryExpression.getOperand() instanceof Identifier) {
-                //todo
-            } else if (unaryExpression.getOperand() instanceof ListAccessByIndex) {
-                //todo
-            } else if (unaryExpression.getOperand() instanceof ObjectOrListMemberAccess) {
-                Expression instance = ((ObjectOrListMemberAccess) unaryExpression.getOperand()).getInstance();
-                Type memberType = unaryExpression.getOperand().accept(expressionTypeChecker);
-                String memberName = ((ObjectOrListMemberAccess) unaryExpression.getOperand()).getMemberName().getName();
-                Type instanceType = instance.accept(expressionTypeChecker);
-                if (instanceType instanceof ListType) {
-                    //todo
-                } else if (instanceType instanceof ClassType) {
-                    //todo
-                }
-            }
-        } else if ((operator == UnaryOperator.postdec) || (operator == UnaryOperator.postinc)) {
-            if (unaryExpression.getOperand() instanceof Identifier) {
-                //todo
-            } else if (unaryExpression.getOperand() instanceof ListAccessByIndex) {
-                //todo
-            } else if (unaryExpression.getOperand() instanceof ObjectOrListMemberAccess) {
-                Expression instance = ((ObjectOrListMemberAccess) unaryExpression.getOperand()).getInstance();
-                Type memberType = unaryExpression.getOperand().accept(expressionTypeChecker);
-                String memberName = ((ObjectOrListMemberAccess) unaryExpression.getOperand()).getMemberName().getName();
-                Type instanceType = instance.accept(expressionTypeChecker);
-                if (instanceType instanceof ListType) {
-                    //todo
-                } else if (instanceType instanceof ClassType) {
-                    //todo
-                }
-            }
+            commands.addAll(unaryExpression.getOperand().accept(this));
+            commands.add("iconst_1");
+            commands.add("ixor");
+        } else {
+            commands.addAll(incDec(unaryExpression.getOperand(), operator));
         }
         return commands;
     }
 
     @Override
-    public String visit(ObjectOrListMemberAccess objectOrListMemberAccess) {
-        Type memberType = objectOrListMemberAccess.accept(expressionTypeChecker);
+    public InstructionList visit(ObjectOrListMemberAccess objectOrListMemberAccess) {
         Type instanceType = objectOrListMemberAccess.getInstance().accept(expressionTypeChecker);
         String memberName = objectOrListMemberAccess.getMemberName().getName();
-        String commands = "";
+        InstructionList commands = new InstructionList();
         if (instanceType instanceof ClassType) {
             String className = ((ClassType) instanceType).getClassName().getName();
             try {
-                SymbolTable classSymbolTable = ((ClassSymbolTableItem) SymbolTable.root.getItem(ClassSymbolTableItem.START_KEY + className, true)).getClassSymbolTable();
+                ClassSymbolTableItem classSymbolTableItem = (ClassSymbolTableItem) context.getRoot().getItem(ClassSymbolTableItem.START_KEY + className, true);
                 try {
-                    classSymbolTable.getItem(FieldSymbolTableItem.START_KEY + memberName, true);
-                    //todo it is a field
+                    classSymbolTableItem.getField(memberName);
+                    commands.addAll(lvalueTarget(objectOrListMemberAccess));
+                    commands.addAll(loadFromTarget(objectOrListMemberAccess));
                 } catch (ItemNotFoundException memberIsMethod) {
-                    //todo it is a method (new instance of Fptr)
+                    commands.add("new", "Fptr");
+                    commands.add("dup");
+                    commands.addAll(objectOrListMemberAccess.getInstance().accept(this));
+                    commands.add("ldc", "\"" + memberName + "\"");
+                    commands.add("ldc", "\"" + functionalInterfaceOf((FptrType) objectOrListMemberAccess.accept(expressionTypeChecker)) + "\"");
+                    commands.add("invokespecial", "Fptr/<init>(Ljava/lang/Object;Ljava/lang/String;Ljava/lang/String;)V");
                 }
             } catch (ItemNotFoundException classNotFound) {
             }
         } else if (instanceType instanceof ListType) {
-            //todo
+            commands.addAll(lvalueTarget(objectOrListMemberAccess));
+            commands.addAll(loadFromTarget(objectOrListMemberAccess));
         }
         return commands;
     }
 
     @Override
-    public String visit(Identifier identifier) {
-        String commands = "";
-        return commands;
+    public InstructionList visit(Identifier identifier) {
+        return loadFromTarget(identifier);
     }
 
     @Override
-    public String visit(ListAccessByIndex listAccessByIndex) {
-        String commands = "";
-        commands += listAccessByIndex.getInstance().accept(this);
-        commands += listAccessByIndex.getIndex().accept(this);
-        commands += "invokevirtual List/getElement(I)Ljava/lang/Object;\n";
-
-        Type elementType;
-
-        if(listAccessByIndex.getIndex() instanceof IntValue)
-            elementType = ((ListType) listAccessByIndex.getInstance().accept(expressionTypeChecker)).getElementsTypes().get(((IntValue) listAccessByIndex.getIndex()).getConstant()).getType();
-        else
-            elementType = ((ListType) listAccessByIndex.getInstance().accept(expressionTypeChecker)).getElementsTypes().get(0).getType();
-
-        if (elementType instanceof IntType) {
-            commands += "checkcast java/lang/Integer\n";
-            commands += "invokevirtual java/lang/Integer/intValue()I\n";
-        } else if (elementType instanceof BoolType) {
-            commands += "checkcast java/lang/Boolean\n";
-            commands += "invokevirtual java/lang/Boolean/booleanValue()Z\n";
-        } else if (elementType instanceof StringType) {
-            commands += "checkcast java/lang/String\n";
-        } else if (elementType instanceof ClassType) {
-            commands += "checkcast " + ((ClassType) elementType).getClassName().getName() + "\n";
-        }
+    public InstructionList visit(ListAccessByIndex listAccessByIndex) {
+        InstructionList commands = lvalueTarget(listAccessByIndex);
+        commands.addAll(loadFromTarget(listAccessByIndex));
         return commands;
     }
 
     @Override
-    public String visit(MethodCall methodCall) {
-        String commands = "";
-        commands += methodCall.getInstance().accept(this);
-        commands += "new java/util/ArrayList\n";
-        commands += "dup\n";
-        commands += "invokespecial java/util/ArrayList/<init>()V\n";
+    public InstructionList visit(MethodCall methodCall) {
+        InstructionList commands = new InstructionList();
+        MethodSymbolTableItem classMethod = classMethodOf(methodCall.getInstance());
+        if (classMethod != null) {
+            //sophia methods cannot be overridden with another signature, so the static class can be the owner
+            ObjectOrListMemberAccess memberAccess = (ObjectOrListMemberAccess) methodCall.getInstance();
+            String className = ((ClassType) memberAccess.getInstance().accept(expressionTypeChecker)).getClassName().getName();
+            commands.addAll(memberAccess.getInstance().accept(this));
+            commands.addAll(arguments(methodCall.getArgs()));
+            commands.add("invokevirtual", className + "/" + classMethod.getName() + methodDescriptor(classMethod.getArgTypes(), classMethod.getReturnType()));
+            return commands;
+        }
+        FptrType fptrType = (FptrType) methodCall.getInstance().accept(expressionTypeChecker);
+        String interfaceName = functionalInterfaceOf(fptrType);
+        String invokeLabel = newLabel();
+        String endLabel = newLabel();
+        commands.addAll(methodCall.getInstance().accept(this));
+        //pointers created with the same signature are called through their functional interface,
+        //the others (assigned through fptr subtyping) through Fptr.invoke
+        commands.add("dup");
+        commands.add("getfield", "Fptr/target Ljava/lang/Object;");
+        commands.add("dup");
+        commands.add("instanceof", interfaceName);
+        commands.add("ifeq", invokeLabel);
+        commands.add("swap");
+        commands.add("pop");
+        commands.add("checkcast", interfaceName);
+        commands.addAll(arguments(methodCall.getArgs()));
+        commands.add("invokeinterface", interfaceName + "/call" + methodDescriptor(fptrType.getArgumentsTypes(), fptrType.getReturnType())
+                + " " + Integer.toString(methodCall.getArgs().size() + 1));
+        commands.add("goto", endLabel);
+        commands.addLabel(invokeLabel);
+        commands.add("pop");
+        commands.add("new", "java/util/ArrayList");
+        commands.add("dup");
+        commands.add("invokespecial", "java/util/ArrayList/<init>()V");
         for (Expression arg : methodCall.getArgs()) {
-            Type argType = arg.accept(expressionTypeChecker);
-            if (argType instanceof IntType) {
-                commands += "new java/lang/Integer\n";
-                commands += "dup\n";
-                commands += arg.accept(this);
-                commands += "invokespecial java/lang/Integer/<init>(I)V\n";
-            } else if (argType instanceof BoolType) {
-                commands += "new java/lang/Boolean\n";
-                commands += "dup\n";
-                commands += arg.accept(this);
-                commands += "invokespecial java/lang/Boolean/<init>(Z)V\n";
-            } else {
-                commands += arg.accept(this);
-            }
-            commands += "invokevirtual java/util/ArrayList/add(Ljava/lang/Object;)Z\n";
-            commands += "pop\n";
-        }
-        commands += "invokevirtual Fptr/invoke(Ljava/util/ArrayList;)Ljava/lang/Object;\n";
-        Type returnType = ((FptrType) methodCall.getInstance().accept(expressionTypeChecker)).getReturnType();
-        if (returnType instanceof IntType) {
-            commands += "checkcast java/lang/Integer\n";
-            commands += "invokevirtual java/lang/Integer/intValue()I\n";
-        } else if (returnType instanceof BoolType) {
-            commands += "checkcast java/lang/Boolean\n";
-            commands += "invokevirtual java/lang/Boolean/booleanValue()Z\n";
-        } else if (returnType instanceof StringType) {
-            commands += "checkcast java/lang/String\n";
-        } else if (returnType instanceof ClassType) {
-            commands += "checkcast " + ((ClassType) returnType).getClassName().getName() + "\n";
-        } else if (returnType instanceof NullType) {
-            commands += "pop\n";
+            commands.add("dup");
+            commands.addAll(copiedValue(arg, arg.accept(expressionTypeChecker)));
+            commands.addAll(box(arg.accept(expressionTypeChecker)));
+            commands.add("invokevirtual", "java/util/ArrayList/add(Ljava/lang/Object;)Z");
+            commands.add("pop");
         }
+        commands.add("invokevirtual", "Fptr/invoke(Ljava/util/ArrayList;)Ljava/lang/Object;");
+        Type returnType = fptrType.getReturnType();
+        if (returnType instanceof NullType)
+            commands.add("pop");
+        else
+            commands.addAll(castFromObject(returnType));
+        commands.addLabel(endLabel);
         return commands;
     }
 
     @Override
-    public String visit(NewClassInstance newClassInstance) {
-        String commands = "new " + newClassInstance.getClass().getName() + '\n';
-        commands += "dup\n";
-        String argString = "";
-
-        for (Expression arg : newClassInstance.getArgs()) {
-            Type argType = arg.accept(expressionTypeChecker);
-            if (argType instanceof IntType) {
-                commands += "new java/lang/Integer\n";
-                commands += "dup\n";
-                commands += arg.accept(this);
-                commands += "invokespecial java/lang/Integer/<init>(I)V\n";
-            } else if (argType instanceof BoolType) {
-                commands += "new java/lang/Boolean\n";
-                commands += "dup\n";
-                commands += arg.accept(this);
-                commands += "invokespecial java/lang/Boolean/<init>(Z)V\n";
-            } else {
-                commands += arg.accept(this);
-            }
-            argString += makeTypeSignature(argType);
-        }
-        commands += "invokespecial " + newClassInstance.getClass().getName() + "/<init>(" + argString + ")V\n";
+    public InstructionList visit(NewClassInstance newClassInstance) {
+        String className = newClassInstance.getClassType().getClassName().getName();
+        ArrayList<Type> argTypes = constructorArgTypes(className);
+        InstructionList commands = new InstructionList();
+        commands.add("new", className);
+        commands.add("dup");
+        commands.addAll(arguments(newClassInstance.getArgs()));
+        commands.add("invokespecial", className + "/<init>" + methodDescriptor(argTypes, new NullType()));
         return commands;
     }
 
     @Override
-    public String visit(ThisClass thisClass) {
-        String commands = "aload_0\n";
+    public InstructionList visit(ThisClass thisClass) {
+        InstructionList commands = new InstructionList();
+        commands.add("aload_0");
         return commands;
     }
 
     @Override
-    public String visit(ListValue listValue) {
-        String commands = "";
-        commands += "new List\n";
-        commands += "dup\n";
+    public InstructionList visit(ListValue listValue) {
+        InstructionList commands = new InstructionList();
+        ListType listType = (ListType) listValue.accept(expressionTypeChecker);
+        if (isTuple(listType)) {
+            String tupleClass = listClassOf(listType);
+            commands.add("new", tupleClass);
+            commands.add("dup");
+            for (Expression expr : listValue.getElements())
+                commands.addAll(copiedValue(expr, expr.accept(expressionTypeChecker)));
+            commands.add("invokespecial", tupleClass + "/<init>" + tupleConstructorDescriptor(listType));
+            return commands;
+        }
+        String element = primitiveElementOf(listType);
+        if (element != null) {
+            commands.add("new", listClassOf(listType));
+            commands.add("dup");
+            commands.addAll(intConstant(listValue.getElements().size()));
+            commands.add("newarray", element.equals("I") ? "int" : "boolean");
+            for (int i = 0; i < listValue.getElements().size(); i++) {
+                commands.add("dup");
+                commands.addAll(intConstant(i));
+                commands.addAll(listValue.getElements().get(i).accept(this));
+                commands.add(element.equals("I") ? "iastore" : "bastore");
+            }
+            commands.add("invokespecial", listClassOf(listType) + "/<init>([" + element + ")V");
+            return commands;
+        }
+        commands.add("new", "List");
+        commands.add("dup");
 
-        commands += "new java/util/ArrayList\n";
-        commands += "dup\n";
+        commands.add("new", "java/util/ArrayList");
+        commands.add("dup");
+        commands.add("invokespecial", "java/util/ArrayList/<init>()V");
 
         for (Expression expr : listValue.getElements()) {
-            Type exprType = expr.accept(expressionTypeChecker);
-            if (exprType instanceof IntType) {
-                commands += "new java/lang/Integer\n";
-                commands += "dup\n";
-                commands += expr.accept(this);
-                commands += "invokespecial java/lang/Integer/<init>(I)V\n";
-            } else if (exprType instanceof BoolType) {
-                commands += "new java/lang/Boolean\n";
-                commands += "dup\n";
-                commands += expr.accept(this);
-                commands += "invokespecial java/lang/Boolean/<init>(Z)V\n";
-            } else {
-                commands += expr.accept(this);
-            }
+            commands.add("dup");
+            commands.addAll(copiedValue(expr, expr.accept(expressionTypeChecker)));
+            commands.addAll(box(expr.accept(expressionTypeChecker)));
+            commands.add("invokevirtual", "java/util/ArrayList/add(Ljava/lang/Object;)Z");
+            commands.add("pop");
         }
-        commands += "invokespecial java/util/ArrayList/<init>()V\n";
 
-        commands += "invokespecial List/<init>(Ljava/util/ArrayList;)V\n";
+        commands.add("invokespecial", "List/<init>(Ljava/util/ArrayList;)V");
         return commands;
     }
 
     @Override
-    public String visit(NullValue nullValue) {
-        String commands = "aconst_null\n";
+    public InstructionList visit(NullValue nullValue) {
+        InstructionList commands = new InstructionList();
+        commands.add("aconst_null");
         return commands;
     }
 
     @Override
-    public String visit(IntValue intValue) {
-        String commands = "";
-        if (0 <= intValue.getConstant() && intValue.getConstant() <= 5)
-            commands += "iconst_";
-        else
-            commands += "bipush ";
-        commands += Integer.toString(intValue.getConstant());
-        commands += '\n';
-        return commands;
+    public InstructionList visit(IntValue intValue) {
+        return intConstant(intValue.getConstant());
     }
 
     @Override
-    public String visit(BoolValue boolValue) {
-        String commands = "";
+    public InstructionList visit(BoolValue boolValue) {
+        InstructionList commands = new InstructionList();
         if (boolValue.getConstant())
-            commands += "iconst_1";
+            commands.add("iconst_1");
         else
-            commands += "iconst_0";
-        commands += '\n';
+            commands.add("iconst_0");
         return commands;
     }
 
     @Override
-    public String visit(StringValue stringValue) {
-        String commands = "ldc \"";
-        commands += stringValue.getConstant();
-        commands += "\"\n";
+    public InstructionList visit(StringValue stringValue) {
+        InstructionList commands = new InstructionList();
+        commands.add("ldc", "\"" + stringValue.getConstant() + "\"");
         return commands;
     }
 
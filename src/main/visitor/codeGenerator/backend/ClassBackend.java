@@ -0,0 +1,27 @@
+package main.visitor.codeGenerator.backend;
+
+import main.visitor.codeGenerator.instruction.Instruction;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+public interface ClassBackend {
+    void beginClass(String className, String superClassName);
+
+    //finished with endClass like classes
+    void beginInterface(String interfaceName);
+
+    void addField(String fieldName, String descriptor);
+
+    //accessFlags are jasmin keywords separated by spaces, e.g. "public static"
+    void addMethod(String accessFlags, String methodName, String descriptor, ArrayList<Instruction> code, int maxStack, int maxLocals);
+
+    void addAbstractMethod(String methodName, String descriptor);
+
+    void endClass();
+
+    //class name -> class file bytes
+    Map<String, byte[]> generateClassFiles();
+
+    int getNumberOfErrors();
+}
@@ -0,0 +1,282 @@
+package main.visitor.codeGenerator.backend;
+
+import main.visitor.codeGenerator.backend.classFile.ClassFileWriter;
+import main.visitor.codeGenerator.backend.classFile.ConstantPool;
+import main.visitor.codeGenerator.backend.classFile.MethodBody;
+import main.visitor.codeGenerator.backend.classFile.Opcodes;
+import main.visitor.codeGenerator.backend.classFile.exceptions.BranchOutOfRangeException;
+import main.visitor.codeGenerator.backend.classFile.exceptions.CodeTooLongException;
+import main.visitor.codeGenerator.backend.classFile.exceptions.InstructionNotSupportedException;
+import main.visitor.codeGenerator.backend.classFile.exceptions.LabelNotFoundException;
+import main.visitor.codeGenerator.instruction.Instruction;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class DirectBackend implements ClassBackend {
+    private Map<String, byte[]> classFiles;
+    private ClassFileWriter currentClass;
+    private String currentClassName;
+    private MethodBody currentMethod;
+    private int numberOfErrors;
+    private PrintStream out;
+
+    public DirectBackend() {
+        this(System.out);
+    }
+
+    public DirectBackend(PrintStream out) {
+        this.out = out;
+        this.classFiles = new LinkedHashMap<>();
+        this.numberOfErrors = 0;
+    }
+
+    private void reportError(String message) {
+        out.println(currentClassName + ".class: " + message);
+        numberOfErrors += 1;
+    }
+
+    private int accessFlagsOf(String accessFlags) {
+        int flags = 0;
+        for (String flag : accessFlags.split(" ")) {
+            if (flag.equals("public"))
+                flags |= ClassFileWriter.ACC_PUBLIC;
+            else if (flag.equals("static"))
+                flags |= ClassFileWriter.ACC_STATIC;
+        }
+        return flags;
+    }
+
+    @Override
+    public void beginClass(String className, String superClassName) {
+        this.currentClassName = className;
+        this.currentClass = new ClassFileWriter(ClassFileWriter.ACC_PUBLIC, className, superClassName);
+        currentClass.setSourceFile(className + ".j");
+    }
+
+    @Override
+    public void beginInterface(String interfaceName) {
+        this.currentClassName = interfaceName;
+        this.currentClass = new ClassFileWriter(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_INTERFACE | ClassFileWriter.ACC_ABSTRACT,
+                interfaceName, "java/lang/Object");
+        currentClass.setSourceFile(interfaceName + ".j");
+    }
+
+    @Override
+    public void addField(String fieldName, String descriptor) {
+        currentClass.addField(0, fieldName, descriptor);
+    }
+
+    @Override
+    public void addMethod(String accessFlags, String methodName, String descriptor, ArrayList<Instruction> code, int maxStack, int maxLocals) {
+        int numberOfErrorsBefore = numberOfErrors;
+        encodeMethod(code, maxStack, maxLocals, false);
+        //a branch offset is 16 bits, only a method this long can have one that does not fit
+        if (currentMethod.getLength() > Short.MAX_VALUE && numberOfErrors == numberOfErrorsBefore)
+            encodeMethod(code, maxStack, maxLocals, true);
+        try {
+            currentClass.addMethod(accessFlagsOf(accessFlags), methodName, descriptor, currentMethod);
+        } catch (LabelNotFoundException e) {
+            reportError("undefined label in method " + methodName);
+        } catch (BranchOutOfRangeException e) {
+            reportError("branch out of range in method " + methodName);
+        } catch (CodeTooLongException e) {
+            reportError("code of method " + methodName + " is longer than 65535 bytes");
+        }
+    }
+
+    private void encodeMethod(ArrayList<Instruction> code, int maxStack, int maxLocals, boolean wideBranches) {
+        this.currentMethod = new MethodBody(wideBranches);
+        currentMethod.setMaxStack(maxStack);
+        currentMethod.setMaxLocals(maxLocals);
+        for (Instruction instruction : code) {
+            if (instruction.isLabel()) {
+                currentMethod.placeLabel(instruction.getOperand());
+                continue;
+            }
+            try {
+                encode(instruction.getOpcode(), instruction.getOperand());
+            } catch (InstructionNotSupportedException | NumberFormatException e) {
+                reportError("instruction not supported: " + instruction);
+            }
+        }
+    }
+
+    @Override
+    public void addAbstractMethod(String methodName, String descriptor) {
+        currentClass.addAbstractMethod(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_ABSTRACT, methodName, descriptor);
+    }
+
+    @Override
+    public void endClass() {
+        classFiles.put(currentClassName, currentClass.toByteArray());
+    }
+
+    @Override
+    public Map<String, byte[]> generateClassFiles() {
+        return classFiles;
+    }
+
+    @Override
+    public int getNumberOfErrors() {
+        return numberOfErrors;
+    }
+
+    private void encode(String mnemonic, String operand) throws InstructionNotSupportedException {
+        int opcode = Opcodes.opcodeOf(mnemonic);
+        if (opcode == -1)
+            throw new InstructionNotSupportedException();
+        ConstantPool constantPool = currentClass.getConstantPool();
+        switch (Opcodes.operandKindOf(mnemonic)) {
+            case none:
+                currentMethod.putByte(opcode);
+                break;
+            case local:
+                putLocal(opcode, Integer.parseInt(operand));
+                break;
+            case byteValue:
+                currentMethod.putByte(opcode);
+                currentMethod.putByte(Integer.parseInt(operand));
+                break;
+            case shortValue:
+                currentMethod.putByte(opcode);
+                currentMethod.putShort(Integer.parseInt(operand));
+                break;
+            case constant:
+                int index;
+                if (operand.startsWith("\""))
+                    index = constantPool.string(unescape(operand.substring(1, operand.length() - 1)));
+                else
+                    index = constantPool.integer(Integer.parseInt(operand));
+                if (index < 256) {
+                    currentMethod.putByte(Opcodes.LDC);
+                    currentMethod.putByte(index);
+                } else {
+                    currentMethod.putByte(Opcodes.LDC_W);
+                    currentMethod.putShort(index);
+                }
+                break;
+            case type:
+                currentMethod.putByte(opcode);
+                currentMethod.putShort(constantPool.classRef(operand));
+                break;
+            case field:
+                String[] fieldParts = operand.split(" ");
+                int fieldSeparator = fieldParts[0].lastIndexOf('/');
+                currentMethod.putByte(opcode);
+                currentMethod.putShort(constantPool.fieldRef(fieldParts[0].substring(0, fieldSeparator),
+                        fieldParts[0].substring(fieldSeparator + 1), fieldParts[1]));
+                break;
+            case method:
+            case interfaceMethod:
+                if (operand.indexOf(' ') != -1)
+                    operand = operand.substring(0, operand.indexOf(' '));
+                int descriptorStart = operand.indexOf('(');
+                int methodSeparator = operand.lastIndexOf('/', descriptorStart);
+                String owner = operand.substring(0, methodSeparator);
+                String name = operand.substring(methodSeparator + 1, descriptorStart);
+                String descriptor = operand.substring(descriptorStart);
+                currentMethod.putByte(opcode);
+                if (Opcodes.operandKindOf(mnemonic) == Opcodes.OperandKind.method) {
+                    currentMethod.putShort(constantPool.methodRef(owner, name, descriptor));
+                } else {
+                    currentMethod.putShort(constantPool.interfaceMethodRef(owner, name, descriptor));
+                    currentMethod.putByte(argumentSlotsOf(descriptor) + 1);
+                    currentMethod.putByte(0);
+                }
+                break;
+            case branch:
+                currentMethod.putBranch(opcode, operand);
+                break;
+            case iinc:
+                String[] iincParts = operand.split(" ");
+                int slot = Integer.parseInt(iincParts[0]);
+                int increment = Integer.parseInt(iincParts[1]);
+                if (slot > 255 || increment < -128 || increment > 127) {
+                    currentMethod.putByte(Opcodes.WIDE);
+                    currentMethod.putByte(opcode);
+                    currentMethod.putShort(slot);
+                    currentMethod.putShort(increment);
+                } else {
+                    currentMethod.putByte(opcode);
+                    currentMethod.putByte(slot);
+                    currentMethod.putByte(increment);
+                }
+                break;
+            case arrayType:
+                currentMethod.putByte(opcode);
+                if (operand.equals("boolean"))
+                    currentMethod.putByte(4);
+                else if (operand.equals("int"))
+                    currentMethod.putByte(10);
+                else
+                    throw new InstructionNotSupportedException();
+                break;
+        }
+    }
+
+    private void putLocal(int opcode, int slot) {
+        if (slot > 255) {
+            currentMethod.putByte(Opcodes.WIDE);
+            currentMethod.putByte(opcode);
+            currentMethod.putShort(slot);
+        } else {
+            currentMethod.putByte(opcode);
+            currentMethod.putByte(slot);
+        }
+    }
+
+    private int argumentSlotsOf(String descriptor) {
+        int slots = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            char c = descriptor.charAt(i);
+            if (c == 'J' || c == 'D') {
+                slots += 2;
+                i += 1;
+                continue;
+            }
+            while (c == '[') {
+                i += 1;
+                c = descriptor.charAt(i);
+            }
+            if (c == 'L')
+                i = descriptor.indexOf(';', i);
+            i += 1;
+            slots += 1;
+        }
+        return slots;
+    }
+
+    //same escapes as jasmin's string literals
+    private String unescape(String value) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\' || i + 1 == value.length()) {
+                result.append(c);
+                continue;
+            }
+            i += 1;
+            c = value.charAt(i);
+            if (c == 'n')
+                result.append('\n');
+            else if (c == 't')
+                result.append('\t');
+            else if (c == 'r')
+                result.append('\r');
+            else if (c == 'b')
+                result.append('\b');
+            else if (c == 'f')
+                result.append('\f');
+            else if (c == 'u' && i + 4 < value.length()) {
+                result.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+                i += 4;
+            } else
+                result.append(c);
+        }
+        return result.toString();
+    }
+}
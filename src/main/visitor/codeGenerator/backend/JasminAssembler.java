@@ -0,0 +1,86 @@
+package main.visitor.codeGenerator.backend;
+
+import jasmin.ClassFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class JasminAssembler {
+    //jasmin's scanner and stack map writer keep state in statics, so only one class is assembled at a time
+    private static final Object jasminLock = new Object();
+    //jasmin code -> class file bytes, for code every program assembles like the utility classes
+    private static final Map<String, byte[]> sharedClassFiles = new ConcurrentHashMap<>();
+
+    private PrintStream out;
+    private int numberOfErrors;
+
+    public JasminAssembler() {
+        this(System.out);
+    }
+
+    public JasminAssembler(PrintStream out) {
+        this.out = out;
+        this.numberOfErrors = 0;
+    }
+
+    public int getNumberOfErrors() {
+        return numberOfErrors;
+    }
+
+    //returns null when the jasmin code has errors
+    public byte[] assemble(String fileName, String jasminCode) {
+        synchronized (jasminLock) {
+            return assembleLocked(fileName, jasminCode);
+        }
+    }
+
+    private byte[] assembleLocked(String fileName, String jasminCode) {
+        ClassFile classFile = new ClassFile();
+        try {
+            classFile.readJasmin(new StringReader(jasminCode), fileName, false);
+            if (classFile.errorCount() > 0) {
+                out.println(fileName + ": Found " + classFile.errorCount() + " errors");
+                numberOfErrors += classFile.errorCount();
+                return null;
+            }
+            ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+            classFile.write(classBytes);
+            return classBytes.toByteArray();
+        } catch (Exception e) {
+            out.println(fileName + ": " + e.getMessage());
+            numberOfErrors += 1;
+            return null;
+        }
+    }
+
+    //class name -> class file bytes, sorted by class name
+    public Map<String, byte[]> assembleAll(Map<String, String> jasminClasses) {
+        Map<String, byte[]> classFiles = new TreeMap<>();
+        for (Map.Entry<String, String> jasminClass : jasminClasses.entrySet()) {
+            byte[] classBytes = assemble(jasminClass.getKey() + ".j", jasminClass.getValue());
+            if (classBytes != null)
+                classFiles.put(jasminClass.getKey(), classBytes);
+        }
+        return classFiles;
+    }
+
+    //like assembleAll, but code any assembler in this JVM already assembled is not assembled again
+    public Map<String, byte[]> assembleAllShared(Map<String, String> jasminClasses) {
+        Map<String, byte[]> classFiles = new TreeMap<>();
+        for (Map.Entry<String, String> jasminClass : jasminClasses.entrySet()) {
+            byte[] classBytes = sharedClassFiles.get(jasminClass.getValue());
+            if (classBytes == null) {
+                classBytes = assemble(jasminClass.getKey() + ".j", jasminClass.getValue());
+                if (classBytes != null)
+                    sharedClassFiles.put(jasminClass.getValue(), classBytes);
+            }
+            if (classBytes != null)
+                classFiles.put(jasminClass.getKey(), classBytes);
+        }
+        return classFiles;
+    }
+}
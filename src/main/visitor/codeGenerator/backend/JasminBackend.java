@@ -0,0 +1,124 @@
+package main.visitor.codeGenerator.backend;
+
+import main.visitor.codeGenerator.instruction.Instruction;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class JasminBackend implements ClassBackend {
+    private String outputPath;
+    //reused for every class, written to the class's .j file once the class is finished
+    private StringBuilder currentCode;
+    private String currentClassName;
+    private Map<String, String> jasminClasses;
+    private JasminAssembler jasminAssembler;
+    private PrintStream out;
+    //.j files that could not be written, the compile fails like it does on assembler errors
+    private int numberOfWriteErrors;
+
+    public JasminBackend(String outputPath) {
+        this(outputPath, System.out);
+    }
+
+    public JasminBackend(String outputPath, PrintStream out) {
+        this.outputPath = outputPath;
+        this.currentCode = new StringBuilder();
+        this.jasminClasses = new LinkedHashMap<>();
+        this.jasminAssembler = new JasminAssembler(out);
+        this.out = out;
+    }
+
+    public Map<String, String> getJasminClasses() {
+        return jasminClasses;
+    }
+
+    private void writeFile(String name, String code) {
+        String path = this.outputPath + name + ".j";
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(code.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        } catch (IOException e) {
+            out.println("cannot write " + path + ": " + e.getMessage());
+            numberOfWriteErrors++;
+        }
+    }
+
+    private void addLine(String line) {
+        this.currentCode.append(line).append('\n');
+    }
+
+    @Override
+    public void beginClass(String className, String superClassName) {
+        this.currentClassName = className;
+        this.currentCode.setLength(0);
+        addLine(".class " + className);
+        addLine(".super " + superClassName);
+        addLine("");
+    }
+
+    @Override
+    public void beginInterface(String interfaceName) {
+        this.currentClassName = interfaceName;
+        this.currentCode.setLength(0);
+        addLine(".interface public abstract " + interfaceName);
+        addLine(".super java/lang/Object");
+        addLine("");
+    }
+
+    @Override
+    public void addField(String fieldName, String descriptor) {
+        addLine(".field " + fieldName + " " + descriptor);
+    }
+
+    @Override
+    public void addMethod(String accessFlags, String methodName, String descriptor, ArrayList<Instruction> code, int maxStack, int maxLocals) {
+        if (accessFlags.isEmpty())
+            addLine(".method " + methodName + descriptor);
+        else
+            addLine(".method " + accessFlags + " " + methodName + descriptor);
+        addLine(".limit stack " + maxStack);
+        addLine(".limit locals " + maxLocals);
+        for (Instruction instruction : code) {
+            if (instruction.isLabel())
+                this.currentCode.append('\t').append(instruction.getOperand()).append(":\n");
+            else
+                this.currentCode.append("\t\t").append(instruction).append('\n');
+        }
+        addLine(".end method");
+        addLine("");
+    }
+
+    @Override
+    public void addAbstractMethod(String methodName, String descriptor) {
+        addLine(".method public abstract " + methodName + descriptor);
+        addLine(".end method");
+        addLine("");
+    }
+
+    @Override
+    public void endClass() {
+        String code = currentCode.toString();
+        jasminClasses.put(currentClassName, code);
+        writeFile(currentClassName, code);
+    }
+
+    @Override
+    public Map<String, byte[]> generateClassFiles() {
+        return jasminAssembler.assembleAll(jasminClasses);
+    }
+
+    @Override
+    public int getNumberOfErrors() {
+        return jasminAssembler.getNumberOfErrors() + numberOfWriteErrors;
+    }
+}
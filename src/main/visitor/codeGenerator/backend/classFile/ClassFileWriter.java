@@ -0,0 +1,130 @@
+package main.visitor.codeGenerator.backend.classFile;
+
+import main.visitor.codeGenerator.backend.classFile.exceptions.BranchOutOfRangeException;
+import main.visitor.codeGenerator.backend.classFile.exceptions.CodeTooLongException;
+import main.visitor.codeGenerator.backend.classFile.exceptions.LabelNotFoundException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+public class ClassFileWriter {
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_SUPER = 0x0020;
+    public static final int ACC_INTERFACE = 0x0200;
+    public static final int ACC_ABSTRACT = 0x0400;
+
+    //class files older than 50.0 are checked by the type inferencing verifier, so no StackMapTable is needed
+    private static final int MAJOR_VERSION = 49;
+    private static final int MINOR_VERSION = 0;
+
+    private final ConstantPool constantPool;
+    private final int accessFlags;
+    private final int thisClass;
+    private final int superClass;
+    private final ByteArrayOutputStream fieldsBytes;
+    private final DataOutputStream fields;
+    private int fieldsCount;
+    private final ByteArrayOutputStream methodsBytes;
+    private final DataOutputStream methods;
+    private int methodsCount;
+    //constant pool indexes of the SourceFile attribute's name and of the file name, 0 when there is none
+    private int sourceFileAttribute;
+    private int sourceFile;
+
+    public ClassFileWriter(int accessFlags, String className, String superClassName) {
+        this.constantPool = new ConstantPool();
+        //interfaces must not have ACC_SUPER
+        this.accessFlags = (accessFlags & ACC_INTERFACE) != 0 ? accessFlags : accessFlags | ACC_SUPER;
+        this.thisClass = constantPool.classRef(className);
+        this.superClass = constantPool.classRef(superClassName);
+        this.fieldsBytes = new ByteArrayOutputStream();
+        this.fields = new DataOutputStream(fieldsBytes);
+        this.methodsBytes = new ByteArrayOutputStream();
+        this.methods = new DataOutputStream(methodsBytes);
+    }
+
+    public ConstantPool getConstantPool() {
+        return constantPool;
+    }
+
+    //named in stack traces, like jasmin names the .j file a class was assembled from
+    public void setSourceFile(String fileName) {
+        this.sourceFileAttribute = constantPool.utf8("SourceFile");
+        this.sourceFile = constantPool.utf8(fileName);
+    }
+
+    public void addField(int accessFlags, String name, String descriptor) {
+        try {
+            fields.writeShort(accessFlags);
+            fields.writeShort(constantPool.utf8(name));
+            fields.writeShort(constantPool.utf8(descriptor));
+            fields.writeShort(0);
+        } catch (IOException ignored) {
+        }
+        fieldsCount += 1;
+    }
+
+    public void addMethod(int accessFlags, String name, String descriptor, MethodBody body)
+            throws LabelNotFoundException, BranchOutOfRangeException, CodeTooLongException {
+        byte[] code = body.resolve();
+        try {
+            methods.writeShort(accessFlags);
+            methods.writeShort(constantPool.utf8(name));
+            methods.writeShort(constantPool.utf8(descriptor));
+            methods.writeShort(1);
+            methods.writeShort(constantPool.utf8("Code"));
+            methods.writeInt(12 + code.length);
+            methods.writeShort(body.getMaxStack());
+            methods.writeShort(body.getMaxLocals());
+            methods.writeInt(code.length);
+            methods.write(code);
+            methods.writeShort(0);
+            methods.writeShort(0);
+        } catch (IOException ignored) {
+        }
+        methodsCount += 1;
+    }
+
+    //no Code attribute
+    public void addAbstractMethod(int accessFlags, String name, String descriptor) {
+        try {
+            methods.writeShort(accessFlags);
+            methods.writeShort(constantPool.utf8(name));
+            methods.writeShort(constantPool.utf8(descriptor));
+            methods.writeShort(0);
+        } catch (IOException ignored) {
+        }
+        methodsCount += 1;
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(classBytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(MINOR_VERSION);
+            out.writeShort(MAJOR_VERSION);
+            constantPool.write(out);
+            out.writeShort(accessFlags);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(fieldsCount);
+            fieldsBytes.writeTo(out);
+            out.writeShort(methodsCount);
+            methodsBytes.writeTo(out);
+            if (sourceFile == 0) {
+                out.writeShort(0);
+            } else {
+                out.writeShort(1);
+                out.writeShort(sourceFileAttribute);
+                out.writeInt(2);
+                out.writeShort(sourceFile);
+            }
+        } catch (IOException ignored) {
+        }
+        return classBytes.toByteArray();
+    }
+}
@@ -0,0 +1,120 @@
+package main.visitor.codeGenerator.backend.classFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ConstantPool {
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int INTERFACE_METHOD_REF = 11;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream entriesBytes;
+    private final DataOutputStream entries;
+    //tag + contents -> index, so every constant is added only once
+    private final Map<String, Integer> indexes;
+    private int size;
+
+    public ConstantPool() {
+        this.entriesBytes = new ByteArrayOutputStream();
+        this.entries = new DataOutputStream(entriesBytes);
+        this.indexes = new HashMap<>();
+        this.size = 1;
+    }
+
+    public int utf8(String value) {
+        String key = UTF8 + ":" + value;
+        Integer index = indexes.get(key);
+        if (index != null)
+            return index;
+        try {
+            entries.writeByte(UTF8);
+            entries.writeUTF(value);
+        } catch (IOException ignored) {
+        }
+        return addEntry(key);
+    }
+
+    public int integer(int value) {
+        String key = INTEGER + ":" + value;
+        Integer index = indexes.get(key);
+        if (index != null)
+            return index;
+        try {
+            entries.writeByte(INTEGER);
+            entries.writeInt(value);
+        } catch (IOException ignored) {
+        }
+        return addEntry(key);
+    }
+
+    public int classRef(String internalName) {
+        return reference(CLASS, utf8(internalName));
+    }
+
+    public int string(String value) {
+        return reference(STRING, utf8(value));
+    }
+
+    public int nameAndType(String name, String descriptor) {
+        return reference(NAME_AND_TYPE, utf8(name), utf8(descriptor));
+    }
+
+    public int fieldRef(String owner, String name, String descriptor) {
+        return reference(FIELD_REF, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    public int methodRef(String owner, String name, String descriptor) {
+        return reference(METHOD_REF, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    public int interfaceMethodRef(String owner, String name, String descriptor) {
+        return reference(INTERFACE_METHOD_REF, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    private int reference(int tag, int index) {
+        String key = tag + ":" + index;
+        Integer existing = indexes.get(key);
+        if (existing != null)
+            return existing;
+        try {
+            entries.writeByte(tag);
+            entries.writeShort(index);
+        } catch (IOException ignored) {
+        }
+        return addEntry(key);
+    }
+
+    private int reference(int tag, int firstIndex, int secondIndex) {
+        String key = tag + ":" + firstIndex + ":" + secondIndex;
+        Integer existing = indexes.get(key);
+        if (existing != null)
+            return existing;
+        try {
+            entries.writeByte(tag);
+            entries.writeShort(firstIndex);
+            entries.writeShort(secondIndex);
+        } catch (IOException ignored) {
+        }
+        return addEntry(key);
+    }
+
+    private int addEntry(String key) {
+        int index = size;
+        indexes.put(key, index);
+        size += 1;
+        return index;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeShort(size);
+        entriesBytes.writeTo(out);
+    }
+}
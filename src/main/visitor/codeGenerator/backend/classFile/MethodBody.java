@@ -0,0 +1,148 @@
+package main.visitor.codeGenerator.backend.classFile;
+
+import main.visitor.codeGenerator.backend.classFile.exceptions.BranchOutOfRangeException;
+import main.visitor.codeGenerator.backend.classFile.exceptions.CodeTooLongException;
+import main.visitor.codeGenerator.backend.classFile.exceptions.LabelNotFoundException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MethodBody {
+    //the code attribute's code_length is 4 bytes but the jvm limits it to this
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    private static class Fixup {
+        int instructionOffset;
+        int operandOffset;
+        String label;
+        //a 4 byte offset of goto_w instead of a 2 byte one
+        boolean isWide;
+
+        Fixup(int instructionOffset, int operandOffset, String label, boolean isWide) {
+            this.instructionOffset = instructionOffset;
+            this.operandOffset = operandOffset;
+            this.label = label;
+            this.isWide = isWide;
+        }
+    }
+
+    private byte[] code;
+    private int length;
+    private Map<String, Integer> labels;
+    private ArrayList<Fixup> fixups;
+    private int maxStack;
+    private int maxLocals;
+    //every branch is written with a goto_w, for methods too long for 16 bit offsets
+    private boolean wideBranches;
+
+    public MethodBody() {
+        this(false);
+    }
+
+    public MethodBody(boolean wideBranches) {
+        this.wideBranches = wideBranches;
+        this.code = new byte[256];
+        this.length = 0;
+        this.labels = new HashMap<>();
+        this.fixups = new ArrayList<>();
+        this.maxStack = 128;
+        this.maxLocals = 128;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    public void setMaxStack(int maxStack) {
+        this.maxStack = maxStack;
+    }
+
+    public int getMaxLocals() {
+        return maxLocals;
+    }
+
+    public void setMaxLocals(int maxLocals) {
+        this.maxLocals = maxLocals;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > code.length)
+            code = Arrays.copyOf(code, Math.max(code.length * 2, length + extra));
+    }
+
+    public void putByte(int value) {
+        ensureCapacity(1);
+        code[length++] = (byte) value;
+    }
+
+    public void putShort(int value) {
+        ensureCapacity(2);
+        code[length++] = (byte) (value >> 8);
+        code[length++] = (byte) value;
+    }
+
+    public void placeLabel(String label) {
+        labels.put(label, length);
+    }
+
+    public void putInt(int value) {
+        putShort(value >> 16);
+        putShort(value);
+    }
+
+    //ifeq and ifne, iflt and ifge, ... and ifnull and ifnonnull are next to each other
+    private static int negatedBranchOf(int opcode) {
+        if (opcode >= 198)
+            return opcode ^ 1;
+        return ((opcode - 153) ^ 1) + 153;
+    }
+
+    //offset is patched in resolve() once every label of the method is placed
+    public void putBranch(int opcode, String label) {
+        if (wideBranches && opcode != Opcodes.GOTO) {
+            //ifeq L is ifne over a goto_w L, the ifne jumps its own 3 bytes and the 5 of the goto_w
+            putByte(negatedBranchOf(opcode));
+            putShort(8);
+            opcode = Opcodes.GOTO;
+        }
+        int instructionOffset = length;
+        if (wideBranches) {
+            putByte(Opcodes.GOTO_W);
+            fixups.add(new Fixup(instructionOffset, length, label, true));
+            putInt(0);
+        } else {
+            putByte(opcode);
+            fixups.add(new Fixup(instructionOffset, length, label, false));
+            putShort(0);
+        }
+    }
+
+    public byte[] resolve() throws LabelNotFoundException, BranchOutOfRangeException, CodeTooLongException {
+        if (length > MAX_CODE_LENGTH)
+            throw new CodeTooLongException();
+        for (Fixup fixup : fixups) {
+            Integer target = labels.get(fixup.label);
+            if (target == null)
+                throw new LabelNotFoundException();
+            int offset = target - fixup.instructionOffset;
+            if (fixup.isWide) {
+                code[fixup.operandOffset] = (byte) (offset >> 24);
+                code[fixup.operandOffset + 1] = (byte) (offset >> 16);
+                code[fixup.operandOffset + 2] = (byte) (offset >> 8);
+                code[fixup.operandOffset + 3] = (byte) offset;
+                continue;
+            }
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE)
+                throw new BranchOutOfRangeException();
+            code[fixup.operandOffset] = (byte) (offset >> 8);
+            code[fixup.operandOffset + 1] = (byte) offset;
+        }
+        return Arrays.copyOf(code, length);
+    }
+}
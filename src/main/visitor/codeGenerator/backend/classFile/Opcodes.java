@@ -0,0 +1,118 @@
+package main.visitor.codeGenerator.backend.classFile;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class Opcodes {
+    public enum OperandKind {
+        none, local, byteValue, shortValue, constant, type, field, method, interfaceMethod, branch, iinc, arrayType
+    }
+
+    public static final int ICONST_0 = 3;
+    public static final int LDC = 18;
+    public static final int LDC_W = 19;
+    public static final int GOTO = 167;
+    public static final int GOTO_W = 200;
+    public static final int WIDE = 196;
+
+    private static final Map<String, Integer> opcodes = new HashMap<>();
+    private static final Map<String, OperandKind> operandKinds = new HashMap<>();
+
+    private static void add(String mnemonic, int opcode, OperandKind operandKind) {
+        opcodes.put(mnemonic, opcode);
+        operandKinds.put(mnemonic, operandKind);
+    }
+
+    static {
+        add("nop", 0, OperandKind.none);
+        add("aconst_null", 1, OperandKind.none);
+        add("iconst_m1", 2, OperandKind.none);
+        for (int i = 0; i <= 5; i++)
+            add("iconst_" + i, ICONST_0 + i, OperandKind.none);
+        add("bipush", 16, OperandKind.byteValue);
+        add("sipush", 17, OperandKind.shortValue);
+        add("ldc", LDC, OperandKind.constant);
+        add("iload", 21, OperandKind.local);
+        add("aload", 25, OperandKind.local);
+        for (int i = 0; i <= 3; i++) {
+            add("iload_" + i, 26 + i, OperandKind.none);
+            add("aload_" + i, 42 + i, OperandKind.none);
+            add("istore_" + i, 59 + i, OperandKind.none);
+            add("astore_" + i, 75 + i, OperandKind.none);
+        }
+        add("iaload", 46, OperandKind.none);
+        add("aaload", 50, OperandKind.none);
+        add("baload", 51, OperandKind.none);
+        add("istore", 54, OperandKind.local);
+        add("astore", 58, OperandKind.local);
+        add("iastore", 79, OperandKind.none);
+        add("aastore", 83, OperandKind.none);
+        add("bastore", 84, OperandKind.none);
+        add("pop", 87, OperandKind.none);
+        add("pop2", 88, OperandKind.none);
+        add("dup", 89, OperandKind.none);
+        add("dup_x1", 90, OperandKind.none);
+        add("dup_x2", 91, OperandKind.none);
+        add("dup2", 92, OperandKind.none);
+        add("dup2_x1", 93, OperandKind.none);
+        add("swap", 95, OperandKind.none);
+        add("iadd", 96, OperandKind.none);
+        add("isub", 100, OperandKind.none);
+        add("imul", 104, OperandKind.none);
+        add("idiv", 108, OperandKind.none);
+        add("irem", 112, OperandKind.none);
+        add("ineg", 116, OperandKind.none);
+        add("ishl", 120, OperandKind.none);
+        add("ishr", 122, OperandKind.none);
+        add("iushr", 124, OperandKind.none);
+        add("iand", 126, OperandKind.none);
+        add("ior", 128, OperandKind.none);
+        add("ixor", 130, OperandKind.none);
+        add("iinc", 132, OperandKind.iinc);
+        add("ifeq", 153, OperandKind.branch);
+        add("ifne", 154, OperandKind.branch);
+        add("iflt", 155, OperandKind.branch);
+        add("ifge", 156, OperandKind.branch);
+        add("ifgt", 157, OperandKind.branch);
+        add("ifle", 158, OperandKind.branch);
+        add("if_icmpeq", 159, OperandKind.branch);
+        add("if_icmpne", 160, OperandKind.branch);
+        add("if_icmplt", 161, OperandKind.branch);
+        add("if_icmpge", 162, OperandKind.branch);
+        add("if_icmpgt", 163, OperandKind.branch);
+        add("if_icmple", 164, OperandKind.branch);
+        add("if_acmpeq", 165, OperandKind.branch);
+        add("if_acmpne", 166, OperandKind.branch);
+        add("goto", 167, OperandKind.branch);
+        add("ireturn", 172, OperandKind.none);
+        add("areturn", 176, OperandKind.none);
+        add("return", 177, OperandKind.none);
+        add("getstatic", 178, OperandKind.field);
+        add("putstatic", 179, OperandKind.field);
+        add("getfield", 180, OperandKind.field);
+        add("putfield", 181, OperandKind.field);
+        add("invokevirtual", 182, OperandKind.method);
+        add("invokespecial", 183, OperandKind.method);
+        add("invokestatic", 184, OperandKind.method);
+        add("invokeinterface", 185, OperandKind.interfaceMethod);
+        add("new", 187, OperandKind.type);
+        add("newarray", 188, OperandKind.arrayType);
+        add("anewarray", 189, OperandKind.type);
+        add("arraylength", 190, OperandKind.none);
+        add("athrow", 191, OperandKind.none);
+        add("checkcast", 192, OperandKind.type);
+        add("instanceof", 193, OperandKind.type);
+        add("ifnull", 198, OperandKind.branch);
+        add("ifnonnull", 199, OperandKind.branch);
+    }
+
+    //returns -1 for mnemonics the direct backend does not support
+    public static int opcodeOf(String mnemonic) {
+        Integer opcode = opcodes.get(mnemonic);
+        return opcode == null ? -1 : opcode;
+    }
+
+    public static OperandKind operandKindOf(String mnemonic) {
+        return operandKinds.get(mnemonic);
+    }
+}
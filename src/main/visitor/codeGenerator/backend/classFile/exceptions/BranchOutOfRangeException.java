@@ -0,0 +1,4 @@
+package main.visitor.codeGenerator.backend.classFile.exceptions;
+
+public class BranchOutOfRangeException extends Exception {
+}
@@ -0,0 +1,46 @@
+package main.visitor.codeGenerator.instruction;
+
+public class Instruction {
+    private String opcode;
+    private String operand;
+    private boolean isLabel;
+
+    //opcode is a jasmin mnemonic, operand is in jasmin syntax and empty when there is none
+    public Instruction(String opcode, String operand) {
+        this.opcode = opcode;
+        this.operand = operand;
+        this.isLabel = false;
+    }
+
+    public Instruction(String opcode) {
+        this(opcode, "");
+    }
+
+    public static Instruction label(String label) {
+        Instruction instruction = new Instruction("", label);
+        instruction.isLabel = true;
+        return instruction;
+    }
+
+    public String getOpcode() {
+        return opcode;
+    }
+
+    //label name for labels and branches
+    public String getOperand() {
+        return operand;
+    }
+
+    public boolean isLabel() {
+        return isLabel;
+    }
+
+    @Override
+    public String toString() {
+        if (isLabel)
+            return operand + ":";
+        if (operand.isEmpty())
+            return opcode;
+        return opcode + " " + operand;
+    }
+}
@@ -0,0 +1,105 @@
+package main.visitor.codeGenerator.instruction;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+//linked so that appending a whole list takes constant time, which keeps code generation
+//of deeply nested expressions linear
+public class InstructionList implements Iterable<Instruction> {
+    private static class Node {
+        Instruction instruction;
+        Node next;
+
+        Node(Instruction instruction) {
+            this.instruction = instruction;
+        }
+    }
+
+    private Node head;
+    private Node tail;
+    private int size;
+
+    public InstructionList() {
+        this.size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public InstructionList add(Instruction instruction) {
+        Node node = new Node(instruction);
+        if (tail == null)
+            head = node;
+        else
+            tail.next = node;
+        tail = node;
+        size += 1;
+        return this;
+    }
+
+    public InstructionList add(String opcode) {
+        return add(new Instruction(opcode));
+    }
+
+    public InstructionList add(String opcode, String operand) {
+        return add(new Instruction(opcode, operand));
+    }
+
+    public InstructionList addLabel(String label) {
+        return add(Instruction.label(label));
+    }
+
+    //moves the instructions of other to the end of this list, other is left empty
+    public InstructionList addAll(InstructionList other) {
+        if (other == null || other.head == null)
+            return this;
+        if (tail == null)
+            head = other.head;
+        else
+            tail.next = other.head;
+        tail = other.tail;
+        size += other.size;
+        other.head = null;
+        other.tail = null;
+        other.size = 0;
+        return this;
+    }
+
+    public Instruction getLast() {
+        return tail == null ? null : tail.instruction;
+    }
+
+    public ArrayList<Instruction> toArrayList() {
+        ArrayList<Instruction> instructions = new ArrayList<>(size);
+        for (Instruction instruction : this)
+            instructions.add(instruction);
+        return instructions;
+    }
+
+    @Override
+    public Iterator<Instruction> iterator() {
+        return new Iterator<Instruction>() {
+            private Node current = head;
+
+            @Override
+            public boolean hasNext() {
+                return current != null;
+            }
+
+            @Override
+            public Instruction next() {
+                if (current == null)
+                    throw new NoSuchElementException();
+                Instruction instruction = current.instruction;
+                current = current.next;
+                return instruction;
+            }
+        };
+    }
+}
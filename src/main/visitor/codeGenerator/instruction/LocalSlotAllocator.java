@@ -0,0 +1,179 @@
+package main.visitor.codeGenerator.instruction;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+//packs the locals and temporaries of one method into as few slots as it can, arguments keep their slots
+//two locals share a slot when neither is live where the other is written and both hold the same kind of value
+public class LocalSlotAllocator {
+    private ArrayList<Instruction> code;
+    private Map<String, Integer> labelIndexes;
+    private int parameterSlots;
+    private int maxLocals;
+
+    public LocalSlotAllocator(ArrayList<Instruction> code, String descriptor, boolean isStatic) {
+        this.code = code;
+        this.labelIndexes = new HashMap<>();
+        for (int i = 0; i < code.size(); i++)
+            if (code.get(i).isLabel())
+                labelIndexes.put(code.get(i).getOperand(), i);
+        this.parameterSlots = StackDepthAnalyzer.argumentSlotsOf(descriptor) + (isStatic ? 0 : 1);
+        this.maxLocals = parameterSlots;
+    }
+
+    //valid after allocate
+    public int maxLocals() {
+        return maxLocals;
+    }
+
+    public ArrayList<Instruction> allocate() {
+        Map<Integer, Character> kinds = new TreeMap<>();
+        for (Instruction instruction : code)
+            if (accessesSlot(instruction) && slotOf(instruction) >= parameterSlots)
+                kinds.put(slotOf(instruction), instruction.getOpcode().charAt(0));
+        Map<Integer, Set<Integer>> interference = interferenceOf(kinds.keySet());
+
+        //in the order the locals were declared, each takes the lowest slot none of its neighbours took
+        Map<Integer, Integer> allocation = new HashMap<>();
+        Map<Integer, Character> slotKinds = new HashMap<>();
+        for (Map.Entry<Integer, Character> entry : kinds.entrySet()) {
+            int slot = parameterSlots;
+            while (isTaken(slot, entry.getValue(), interference.get(entry.getKey()), allocation, slotKinds))
+                slot += 1;
+            allocation.put(entry.getKey(), slot);
+            slotKinds.put(slot, entry.getValue());
+            maxLocals = Math.max(maxLocals, slot + 1);
+        }
+
+        ArrayList<Instruction> allocated = new ArrayList<>();
+        for (Instruction instruction : code) {
+            if (accessesSlot(instruction) && allocation.containsKey(slotOf(instruction)))
+                instruction = withSlot(instruction, allocation.get(slotOf(instruction)));
+            //a local copied to a temporary that took its slot
+            Instruction last = allocated.isEmpty() ? null : allocated.get(allocated.size() - 1);
+            if (isStore(instruction) && (last != null) && accessesSlot(last) && isLoad(last) &&
+                    (last.getOpcode().charAt(0) == instruction.getOpcode().charAt(0)) && (slotOf(last) == slotOf(instruction)))
+                allocated.remove(allocated.size() - 1);
+            else
+                allocated.add(instruction);
+        }
+        return allocated;
+    }
+
+    private static boolean isTaken(int slot, char kind, Set<Integer> neighbours, Map<Integer, Integer> allocation,
+                                   Map<Integer, Character> slotKinds) {
+        if (slotKinds.containsKey(slot) && slotKinds.get(slot) != kind)
+            return true;
+        for (Integer neighbour : neighbours)
+            if (allocation.containsKey(neighbour) && allocation.get(neighbour) == slot)
+                return true;
+        return false;
+    }
+
+    private static boolean isLoad(Instruction instruction) {
+        return instruction.getOpcode().startsWith("iload") || instruction.getOpcode().startsWith("aload");
+    }
+
+    private static boolean isStore(Instruction instruction) {
+        return instruction.getOpcode().startsWith("istore") || instruction.getOpcode().startsWith("astore");
+    }
+
+    private static boolean accessesSlot(Instruction instruction) {
+        return !instruction.isLabel() && (isLoad(instruction) || isStore(instruction) || instruction.getOpcode().equals("iinc"));
+    }
+
+    //istore_1, istore 1 and iinc 1 1 all name slot 1
+    private static int slotOf(Instruction instruction) {
+        String opcode = instruction.getOpcode();
+        if (opcode.equals("iinc"))
+            return Integer.parseInt(instruction.getOperand().substring(0, instruction.getOperand().indexOf(' ')));
+        if (opcode.indexOf('_') != -1)
+            return Integer.parseInt(opcode.substring(opcode.indexOf('_') + 1));
+        return Integer.parseInt(instruction.getOperand());
+    }
+
+    private static Instruction withSlot(Instruction instruction, int slot) {
+        String opcode = instruction.getOpcode();
+        if (opcode.equals("iinc"))
+            return new Instruction("iinc", Integer.toString(slot) + instruction.getOperand().substring(instruction.getOperand().indexOf(' ')));
+        if (opcode.indexOf('_') != -1)
+            opcode = opcode.substring(0, opcode.indexOf('_'));
+        if (slot <= 3)
+            return new Instruction(opcode + "_" + Integer.toString(slot));
+        return new Instruction(opcode, Integer.toString(slot));
+    }
+
+    private ArrayList<Integer> successorsOf(int index) {
+        ArrayList<Integer> successors = new ArrayList<>();
+        Instruction instruction = code.get(index);
+        String opcode = instruction.getOpcode();
+        if (!instruction.isLabel() && (opcode.startsWith("if") || opcode.equals("goto")))
+            successors.add(labelIndexes.get(instruction.getOperand()));
+        boolean endsFlow = !instruction.isLabel() &&
+                (opcode.equals("goto") || opcode.endsWith("return") || opcode.equals("athrow"));
+        if (!endsFlow && index + 1 < code.size())
+            successors.add(index + 1);
+        return successors;
+    }
+
+    //the slots live after each instruction, iterated backwards until nothing changes
+    private BitSet[] liveOut() {
+        BitSet[] liveIn = new BitSet[code.size()];
+        BitSet[] liveOut = new BitSet[code.size()];
+        for (int i = 0; i < code.size(); i++) {
+            liveIn[i] = new BitSet();
+            liveOut[i] = new BitSet();
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = code.size() - 1; i >= 0; i--) {
+                BitSet out = new BitSet();
+                for (int successor : successorsOf(i))
+                    out.or(liveIn[successor]);
+                BitSet in = (BitSet) out.clone();
+                Instruction instruction = code.get(i);
+                if (accessesSlot(instruction)) {
+                    if (isStore(instruction))
+                        in.clear(slotOf(instruction));
+                    else
+                        in.set(slotOf(instruction));
+                }
+                liveOut[i] = out;
+                if (!in.equals(liveIn[i])) {
+                    liveIn[i] = in;
+                    changed = true;
+                }
+            }
+        }
+        return liveOut;
+    }
+
+    //a slot written while another is live cannot share a slot with it
+    private Map<Integer, Set<Integer>> interferenceOf(Set<Integer> slots) {
+        Map<Integer, Set<Integer>> interference = new HashMap<>();
+        for (Integer slot : slots)
+            interference.put(slot, new HashSet<>());
+        BitSet[] liveOut = liveOut();
+        for (int i = 0; i < code.size(); i++) {
+            Instruction instruction = code.get(i);
+            if (!accessesSlot(instruction) || isLoad(instruction))
+                continue;
+            int written = slotOf(instruction);
+            if (!slots.contains(written))
+                continue;
+            for (int live = liveOut[i].nextSetBit(0); live >= 0; live = liveOut[i].nextSetBit(live + 1)) {
+                if (live == written || !slots.contains(live))
+                    continue;
+                interference.get(written).add(live);
+                interference.get(live).add(written);
+            }
+        }
+        return interference;
+    }
+}
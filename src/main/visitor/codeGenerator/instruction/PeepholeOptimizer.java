@@ -0,0 +1,269 @@
+package main.visitor.codeGenerator.instruction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+//rewrites the code of one method until no pattern matches, labels it adds are unique inside the method
+public class PeepholeOptimizer {
+    private static final Map<String, String> negatedBranches = new HashMap<>();
+
+    static {
+        String[][] pairs = {{"ifeq", "ifne"}, {"iflt", "ifge"}, {"ifgt", "ifle"}, {"if_icmpeq", "if_icmpne"},
+                {"if_icmplt", "if_icmpge"}, {"if_icmpgt", "if_icmple"}, {"if_acmpeq", "if_acmpne"}, {"ifnull", "ifnonnull"}};
+        for (String[] pair : pairs) {
+            negatedBranches.put(pair[0], pair[1]);
+            negatedBranches.put(pair[1], pair[0]);
+        }
+    }
+
+    private ArrayList<Instruction> code;
+    private int labelCounter;
+
+    public PeepholeOptimizer(ArrayList<Instruction> code) {
+        this.code = new ArrayList<>(code);
+        this.labelCounter = 0;
+    }
+
+    public ArrayList<Instruction> optimize() {
+        boolean changed = true;
+        while (changed) {
+            changed = threadJumps();
+            changed |= rewriteSequences();
+            changed |= removeUnreachable();
+            changed |= removeUnusedLabels();
+        }
+        return code;
+    }
+
+    public static int instructionCountOf(ArrayList<Instruction> code) {
+        int count = 0;
+        for (Instruction instruction : code)
+            if (!instruction.isLabel())
+                count += 1;
+        return count;
+    }
+
+    private static boolean isBranch(Instruction instruction) {
+        return !instruction.isLabel() && (instruction.getOpcode().startsWith("if") || instruction.getOpcode().equals("goto"));
+    }
+
+    private static boolean isConditionalBranch(Instruction instruction) {
+        return !instruction.isLabel() && negatedBranches.containsKey(instruction.getOpcode());
+    }
+
+    private static boolean endsFlow(Instruction instruction) {
+        String opcode = instruction.getOpcode();
+        return !instruction.isLabel() && (opcode.equals("goto") || opcode.endsWith("return") || opcode.equals("athrow"));
+    }
+
+    private static boolean pushesConstant(Instruction instruction) {
+        String opcode = instruction.getOpcode();
+        return !instruction.isLabel() && (opcode.startsWith("iconst_") || opcode.equals("bipush") || opcode.equals("sipush") ||
+                opcode.equals("ldc") || opcode.equals("aconst_null") || opcode.startsWith("iload") || opcode.startsWith("aload"));
+    }
+
+    //istore_1 and istore 1 name the same slot
+    private static String slotOf(Instruction instruction) {
+        String opcode = instruction.getOpcode();
+        if (opcode.indexOf('_') != -1)
+            return opcode.substring(opcode.indexOf('_') + 1);
+        return instruction.getOperand();
+    }
+
+    private static boolean isStore(Instruction instruction) {
+        return !instruction.isLabel() && (instruction.getOpcode().startsWith("istore") || instruction.getOpcode().startsWith("astore"));
+    }
+
+    private static boolean isLoadOf(Instruction instruction, Instruction store) {
+        if (instruction.isLabel())
+            return false;
+        String kind = store.getOpcode().substring(0, 1);
+        return instruction.getOpcode().startsWith(kind + "load") && slotOf(instruction).equals(slotOf(store));
+    }
+
+    private Map<String, Integer> labelIndexes() {
+        Map<String, Integer> labelIndexes = new HashMap<>();
+        for (int i = 0; i < code.size(); i++)
+            if (code.get(i).isLabel())
+                labelIndexes.put(code.get(i).getOperand(), i);
+        return labelIndexes;
+    }
+
+    private int firstInstructionFrom(int index) {
+        while (index < code.size() && code.get(index).isLabel())
+            index += 1;
+        return index;
+    }
+
+    //labels between index and the next instruction, where control falls through to
+    private Set<String> labelsFrom(int index) {
+        Set<String> labels = new HashSet<>();
+        while (index < code.size() && code.get(index).isLabel()) {
+            labels.add(code.get(index).getOperand());
+            index += 1;
+        }
+        return labels;
+    }
+
+    //a label right after the instruction at index
+    private String labelAfter(int index) {
+        if (index + 1 < code.size() && code.get(index + 1).isLabel())
+            return code.get(index + 1).getOperand();
+        String label = "Peephole" + Integer.toString(labelCounter);
+        labelCounter += 1;
+        code.add(index + 1, Instruction.label(label));
+        return label;
+    }
+
+    //branches to a goto go straight to its target, gotos to a return are the return
+    private boolean threadJumps() {
+        boolean changed = false;
+        Map<String, Integer> labelIndexes = labelIndexes();
+        for (int i = 0; i < code.size(); i++) {
+            Instruction instruction = code.get(i);
+            if (!isBranch(instruction))
+                continue;
+            String target = instruction.getOperand();
+            Set<String> visited = new HashSet<>();
+            while (visited.add(target)) {
+                int next = firstInstructionFrom(labelIndexes.get(target));
+                if (next == code.size() || !code.get(next).getOpcode().equals("goto"))
+                    break;
+                target = code.get(next).getOperand();
+            }
+            if (!target.equals(instruction.getOperand())) {
+                code.set(i, new Instruction(instruction.getOpcode(), target));
+                changed = true;
+            }
+            int next = firstInstructionFrom(labelIndexes.get(target));
+            if (instruction.getOpcode().equals("goto") && next < code.size() && code.get(next).getOpcode().endsWith("return")) {
+                code.set(i, code.get(next));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private boolean rewriteSequences() {
+        boolean changed = false;
+        for (int i = 0; i < code.size(); i++) {
+            Instruction instruction = code.get(i);
+            if (instruction.isLabel())
+                continue;
+            Instruction next = (i + 1 < code.size()) ? code.get(i + 1) : null;
+            String opcode = instruction.getOpcode();
+            //goto to the next instruction
+            if (opcode.equals("goto") && labelsFrom(i + 1).contains(instruction.getOperand())) {
+                code.remove(i);
+                changed = true;
+            }
+            //ifeq L1, goto L2, L1: is ifne L2, L1:
+            else if (isConditionalBranch(instruction) && (next != null) && next.getOpcode().equals("goto") &&
+                    labelsFrom(i + 2).contains(instruction.getOperand())) {
+                code.set(i, new Instruction(negatedBranches.get(opcode), next.getOperand()));
+                code.remove(i + 1);
+                changed = true;
+            }
+            //a 0 or 1 that is only tested is a jump
+            else if ((opcode.equals("iconst_0") || opcode.equals("iconst_1")) && (next != null) && !next.isLabel() &&
+                    next.getOpcode().equals("goto") && foldConstantTest(i, labelIndexes().get(next.getOperand()), 2)) {
+                changed = true;
+            } else if ((opcode.equals("iconst_0") || opcode.equals("iconst_1")) && foldConstantTest(i, i + 1, 1)) {
+                changed = true;
+            }
+            //boxed only to be unboxed
+            else if (opcode.equals("invokestatic") && (instruction.getOperand().equals("java/lang/Integer/valueOf(I)Ljava/lang/Integer;") ||
+                    instruction.getOperand().equals("java/lang/Boolean/valueOf(Z)Ljava/lang/Boolean;"))) {
+                changed |= removeBoxing(i);
+            }
+            //the value of an assignment that is not used
+            else if (opcode.equals("dup") && (next != null) && isStore(next) && (i + 2 < code.size()) &&
+                    code.get(i + 2).getOpcode().equals("pop") && !code.get(i + 2).isLabel()) {
+                code.remove(i + 2);
+                code.remove(i);
+                changed = true;
+            }
+            //a store followed by a load of the same slot keeps the value on the stack
+            else if (isStore(instruction) && (next != null) && isLoadOf(next, instruction)) {
+                code.set(i, new Instruction("dup"));
+                code.set(i + 1, instruction);
+                changed = true;
+            }
+            //a value pushed and popped
+            else if ((opcode.equals("dup") || pushesConstant(instruction)) && (next != null) && !next.isLabel() &&
+                    next.getOpcode().equals("pop")) {
+                code.remove(i + 1);
+                code.remove(i);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    //the constant at index reaches a test at target, length is how many instructions from index get there
+    //the constant and the jump become a jump to where the test goes, the test stays for other paths to it
+    private boolean foldConstantTest(int index, int target, int length) {
+        int test = firstInstructionFrom(target);
+        if (test == code.size())
+            return false;
+        String testOpcode = code.get(test).getOpcode();
+        if (!testOpcode.equals("ifeq") && !testOpcode.equals("ifne"))
+            return false;
+        boolean isZero = code.get(index).getOpcode().equals("iconst_0");
+        boolean isTaken = (isZero == testOpcode.equals("ifeq"));
+        int size = code.size();
+        String destination = isTaken ? code.get(test).getOperand() : labelAfter(test);
+        if ((code.size() != size) && (test < index))
+            index += 1;
+        for (int i = 0; i < length; i++)
+            code.remove(index);
+        code.add(index, new Instruction("goto", destination));
+        return true;
+    }
+
+    private boolean removeBoxing(int index) {
+        int next = index + 1;
+        String boxClass = code.get(index).getOperand().startsWith("java/lang/Integer") ? "java/lang/Integer" : "java/lang/Boolean";
+        String unbox = boxClass.equals("java/lang/Integer") ? "java/lang/Integer/intValue()I" : "java/lang/Boolean/booleanValue()Z";
+        if (next < code.size() && !code.get(next).isLabel() && code.get(next).getOpcode().equals("checkcast") &&
+                code.get(next).getOperand().equals(boxClass))
+            next += 1;
+        if (next >= code.size() || code.get(next).isLabel() || !code.get(next).getOpcode().equals("invokevirtual") ||
+                !code.get(next).getOperand().equals(unbox))
+            return false;
+        for (int i = index; i <= next; i++)
+            code.remove(index);
+        return true;
+    }
+
+    //nothing after a goto, return or throw runs until a label that is jumped to
+    private boolean removeUnreachable() {
+        boolean changed = false;
+        Set<String> targets = branchTargets();
+        for (int i = 0; i < code.size(); i++) {
+            if (!endsFlow(code.get(i)))
+                continue;
+            while (i + 1 < code.size() && !(code.get(i + 1).isLabel() && targets.contains(code.get(i + 1).getOperand()))) {
+                code.remove(i + 1);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private boolean removeUnusedLabels() {
+        Set<String> targets = branchTargets();
+        return code.removeIf(instruction -> instruction.isLabel() && !targets.contains(instruction.getOperand()));
+    }
+
+    private Set<String> branchTargets() {
+        Set<String> targets = new HashSet<>();
+        for (Instruction instruction : code)
+            if (isBranch(instruction))
+                targets.add(instruction.getOperand());
+        return targets;
+    }
+}
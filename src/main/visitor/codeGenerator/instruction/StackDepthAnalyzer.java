@@ -0,0 +1,173 @@
+package main.visitor.codeGenerator.instruction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+public class StackDepthAnalyzer {
+    private ArrayList<Instruction> code;
+    private Map<String, Integer> labelIndexes;
+    private int[] depths;
+    private Deque<Integer> worklist;
+
+    public StackDepthAnalyzer(ArrayList<Instruction> code) {
+        this.code = code;
+        this.labelIndexes = new HashMap<>();
+        for (int i = 0; i < code.size(); i++)
+            if (code.get(i).isLabel())
+                labelIndexes.put(code.get(i).getOperand(), i);
+    }
+
+    //no instruction pushes more than it leaves on the stack, so the peak is the largest depth after an instruction
+    //walks every path of the method once, the generated code has the same depth on all paths to an instruction
+    public int maxStack() {
+        this.depths = new int[code.size()];
+        Arrays.fill(depths, -1);
+        this.worklist = new ArrayDeque<>();
+        int maxStack = 0;
+        reach(0, 0);
+        while (!worklist.isEmpty()) {
+            int index = worklist.pop();
+            int depth = depths[index];
+            while (index < code.size()) {
+                Instruction instruction = code.get(index);
+                if (!instruction.isLabel()) {
+                    String opcode = instruction.getOpcode();
+                    depth += stackEffectOf(instruction);
+                    maxStack = Math.max(maxStack, depth);
+                    if (isBranch(opcode))
+                        reach(labelIndexes.get(instruction.getOperand()), depth);
+                    if (opcode.equals("goto") || endsMethod(opcode))
+                        break;
+                }
+                index += 1;
+                if (index < code.size() && depths[index] != -1)
+                    break;
+                if (index < code.size())
+                    depths[index] = depth;
+            }
+        }
+        return maxStack;
+    }
+
+    private void reach(Integer index, int depth) {
+        if (index == null || index >= code.size() || depths[index] != -1)
+            return;
+        depths[index] = depth;
+        worklist.push(index);
+    }
+
+    private static boolean isBranch(String opcode) {
+        return opcode.startsWith("if") || opcode.equals("goto");
+    }
+
+    private static boolean endsMethod(String opcode) {
+        return opcode.endsWith("return") || opcode.equals("athrow");
+    }
+
+    private static int sizeOf(char descriptor) {
+        if (descriptor == 'V')
+            return 0;
+        if (descriptor == 'J' || descriptor == 'D')
+            return 2;
+        return 1;
+    }
+
+    static int argumentSlotsOf(String descriptor) {
+        int slots = 0;
+        int i = descriptor.indexOf('(') + 1;
+        while (descriptor.charAt(i) != ')') {
+            char c = descriptor.charAt(i);
+            boolean isArray = false;
+            while (c == '[') {
+                isArray = true;
+                i += 1;
+                c = descriptor.charAt(i);
+            }
+            if (c == 'L')
+                i = descriptor.indexOf(';', i);
+            slots += isArray ? 1 : sizeOf(c);
+            i += 1;
+        }
+        return slots;
+    }
+
+    private static int returnSlotsOf(String descriptor) {
+        return sizeOf(descriptor.charAt(descriptor.indexOf(')') + 1));
+    }
+
+    private static int stackEffectOf(Instruction instruction) {
+        String opcode = instruction.getOpcode();
+        String operand = instruction.getOperand();
+        if (opcode.startsWith("iconst_") || opcode.startsWith("iload") || opcode.startsWith("aload"))
+            return 1;
+        if (opcode.startsWith("istore") || opcode.startsWith("astore"))
+            return -1;
+        if (opcode.startsWith("invoke")) {
+            String descriptor = operand.indexOf(' ') == -1 ? operand : operand.substring(0, operand.indexOf(' '));
+            int receiver = opcode.equals("invokestatic") ? 0 : 1;
+            return returnSlotsOf(descriptor) - argumentSlotsOf(descriptor) - receiver;
+        }
+        if (opcode.endsWith("static") || opcode.endsWith("field")) {
+            int size = sizeOf(operand.charAt(operand.indexOf(' ') + 1));
+            switch (opcode) {
+                case "getstatic":
+                    return size;
+                case "putstatic":
+                    return -size;
+                case "getfield":
+                    return size - 1;
+                default:
+                    return -size - 1;
+            }
+        }
+        if (opcode.startsWith("if_"))
+            return -2;
+        if (opcode.startsWith("if"))
+            return -1;
+        switch (opcode) {
+            case "aconst_null":
+            case "bipush":
+            case "sipush":
+            case "ldc":
+            case "dup":
+            case "dup_x1":
+            case "dup_x2":
+            case "new":
+                return 1;
+            case "dup2":
+            case "dup2_x1":
+                return 2;
+            case "pop":
+            case "iaload":
+            case "aaload":
+            case "baload":
+            case "iadd":
+            case "isub":
+            case "imul":
+            case "idiv":
+            case "irem":
+            case "ishl":
+            case "ishr":
+            case "iushr":
+            case "iand":
+            case "ior":
+            case "ixor":
+            case "ireturn":
+            case "areturn":
+            case "athrow":
+                return -1;
+            case "pop2":
+                return -2;
+            case "iastore":
+            case "aastore":
+            case "bastore":
+                return -3;
+            default:
+                return 0;
+        }
+    }
+}
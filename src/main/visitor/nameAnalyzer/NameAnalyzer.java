@@ -2,26 +2,33 @@ package main.visitor.nameAnalyzer;
 
 import main.ast.nodes.Program;
 import main.ast.nodes.declaration.classDec.ClassDeclaration;
-import main.symbolTable.SymbolTable;
+import main.ast.nodes.declaration.classDec.classMembersDec.MethodDeclaration;
+import main.symbolTable.SymbolTableContext;
 import main.symbolTable.exceptions.ItemNotFoundException;
 import main.symbolTable.items.ClassSymbolTableItem;
+import main.symbolTable.items.MethodSymbolTableItem;
 import main.symbolTable.utils.graph.Graph;
 import main.symbolTable.utils.graph.exceptions.GraphDoesNotContainNodeException;
 import main.symbolTable.utils.graph.exceptions.NodeAlreadyExistsException;
 
+import java.util.ArrayList;
+
 public class NameAnalyzer {
     private Program program;
     private Graph<String> classHierarchy;
+    private final SymbolTableContext context;
 
-    public NameAnalyzer(Program program) {
+    public NameAnalyzer(Program program, SymbolTableContext context) {
         this.program = program;
+        this.context = context;
     }
 
     public void analyze() {
-        NameCollector nameCollector = new NameCollector();
+        NameCollector nameCollector = new NameCollector(context);
         this.program.accept(nameCollector);
         this.linkParentSymbolTables();
-        NameChecker nameChecker = new NameChecker(classHierarchy);
+        this.resolveSymbolTables();
+        NameChecker nameChecker = new NameChecker(classHierarchy, context);
         this.program.accept(nameChecker);
     }
 
@@ -37,16 +44,39 @@ public class NameAnalyzer {
             String parentName = classDeclaration.getParentClassName().getName();
             try {
                 classHierarchy.addNodeAsParentOf(className, parentName);
-                ClassSymbolTableItem parentSTI = (ClassSymbolTableItem) SymbolTable.root
+                ClassSymbolTableItem parentSTI = (ClassSymbolTableItem) context.getRoot()
                         .getItem(ClassSymbolTableItem.START_KEY + parentName, true);
-                ClassSymbolTableItem thisClassSTI = (ClassSymbolTableItem) SymbolTable.root
+                ClassSymbolTableItem thisClassSTI = (ClassSymbolTableItem) context.getRoot()
                         .getItem(ClassSymbolTableItem.START_KEY + className, true);
                 thisClassSTI.getClassSymbolTable().pre = parentSTI.getClassSymbolTable();
             } catch (ItemNotFoundException | GraphDoesNotContainNodeException ignored) { }
         }
+        classHierarchy.buildIndex();
         this.classHierarchy = classHierarchy;
     }
 
+    //no item is added or relinked after this, so each table gets the items it reaches through its parents flattened
+    private void resolveSymbolTables() {
+        context.getRoot().resolve();
+        for (ClassDeclaration classDeclaration : this.program.getClasses()) {
+            try {
+                ClassSymbolTableItem classSTI = (ClassSymbolTableItem) context.getRoot()
+                        .getItem(ClassSymbolTableItem.START_KEY + classDeclaration.getClassName().getName(), true);
+                if (classSTI.getClassDeclaration() != classDeclaration)
+                    continue;
+                classSTI.resolveMembers();
+                ArrayList<MethodDeclaration> methodDeclarations = new ArrayList<>(classDeclaration.getMethods());
+                if (classDeclaration.getConstructor() != null)
+                    methodDeclarations.add(classDeclaration.getConstructor());
+                for (MethodDeclaration methodDeclaration : methodDeclarations) {
+                    MethodSymbolTableItem methodSTI = classSTI.getMethod(methodDeclaration.getMethodName().getName());
+                    if (methodSTI.getMethodDeclaration() == methodDeclaration)
+                        methodSTI.getMethodSymbolTable().resolve();
+                }
+            } catch (ItemNotFoundException ignored) { }
+        }
+    }
+
     public Graph<String> getClassHierarchy() {
         return classHierarchy;
     }
@@ -10,6 +10,7 @@ import main.compileErrorException.nameErrors.FieldRedefinition;
 import main.compileErrorException.nameErrors.MethodNameConflictWithField;
 import main.compileErrorException.nameErrors.MethodRedefinition;
 import main.symbolTable.SymbolTable;
+import main.symbolTable.SymbolTableContext;
 import main.symbolTable.exceptions.ItemNotFoundException;
 import main.symbolTable.items.ClassSymbolTableItem;
 import main.symbolTable.items.FieldSymbolTableItem;
@@ -20,22 +21,27 @@ import main.visitor.Visitor;
 public class NameChecker extends Visitor<Void> {
     private String currentClassName;
     private Graph<String> classHierarchy;
+    private final SymbolTableContext context;
     Program root;
 
-    public NameChecker(Graph<String> classHierarchy) {
+    public NameChecker(Graph<String> classHierarchy, SymbolTableContext context) {
         this.classHierarchy = classHierarchy;
+        this.context = context;
     }
 
-    private SymbolTable getCurrentClassSymbolTable() {
+    private ClassSymbolTableItem getCurrentClassSymbolTableItem() {
         try {
-            ClassSymbolTableItem classSymbolTableItem = (ClassSymbolTableItem)
-                    SymbolTable.root.getItem(ClassSymbolTableItem.START_KEY + this.currentClassName, true);
-            return classSymbolTableItem.getClassSymbolTable();
+            return (ClassSymbolTableItem) context.getRoot().getItem(ClassSymbolTableItem.START_KEY + this.currentClassName, true);
         } catch (ItemNotFoundException ignored) {
             return null;
         }
     }
 
+    private SymbolTable getCurrentClassSymbolTable() {
+        ClassSymbolTableItem classSymbolTableItem = this.getCurrentClassSymbolTableItem();
+        return (classSymbolTableItem == null) ? null : classSymbolTableItem.getClassSymbolTable();
+    }
+
     @Override
     public Void visit(Program program) {
         this.root = program;
@@ -85,8 +91,7 @@ public class NameChecker extends Visitor<Void> {
         }
         boolean errored = false;
         try {
-            SymbolTable classSymbolTable = this.getCurrentClassSymbolTable();
-            classSymbolTable.getItem(FieldSymbolTableItem.START_KEY + methodDeclaration.getMethodName().getName(), true);
+            this.getCurrentClassSymbolTableItem().getField(methodDeclaration.getMethodName().getName());
             MethodNameConflictWithField exception = new MethodNameConflictWithField(methodDeclaration);
             methodDeclaration.addError(exception);
             errored = true;
@@ -97,9 +102,8 @@ public class NameChecker extends Visitor<Void> {
                 String childName = classDeclaration.getClassName().getName();
                 if(classHierarchy.isSecondNodeAncestorOf(childName, currentClassName)) {
                     try {
-                        ClassSymbolTableItem childSymbolTableItem = (ClassSymbolTableItem) SymbolTable.root.getItem(ClassSymbolTableItem.START_KEY + childName, true);
-                        SymbolTable childSymbolTable = childSymbolTableItem.getClassSymbolTable();
-                        childSymbolTable.getItem(FieldSymbolTableItem.START_KEY + methodDeclaration.getMethodName().getName(), true);
+                        ClassSymbolTableItem childSymbolTableItem = (ClassSymbolTableItem) context.getRoot().getItem(ClassSymbolTableItem.START_KEY + childName, true);
+                        childSymbolTableItem.getField(methodDeclaration.getMethodName().getName());
                         MethodNameConflictWithField exception = new MethodNameConflictWithField(methodDeclaration);
                         methodDeclaration.addError(exception);
                         break;
@@ -11,6 +11,7 @@ import main.compileErrorException.nameErrors.FieldRedefinition;
 import main.compileErrorException.nameErrors.LocalVarRedefinition;
 import main.compileErrorException.nameErrors.MethodRedefinition;
 import main.symbolTable.SymbolTable;
+import main.symbolTable.SymbolTableContext;
 import main.symbolTable.exceptions.ItemAlreadyExistsException;
 import main.symbolTable.items.ClassSymbolTableItem;
 import main.symbolTable.items.FieldSymbolTableItem;
@@ -19,11 +20,16 @@ import main.symbolTable.items.MethodSymbolTableItem;
 import main.visitor.Visitor;
 
 public class NameCollector extends Visitor<Void> {
+    private final SymbolTableContext context;
+
+    public NameCollector(SymbolTableContext context) {
+        this.context = context;
+    }
 
     @Override
     public Void visit(Program program) {
-        SymbolTable.push(new SymbolTable());
-        SymbolTable.root = SymbolTable.top;
+        context.push(new SymbolTable());
+        context.setRoot(context.getTop());
         for(ClassDeclaration classDeclaration : program.getClasses()) {
             classDeclaration.accept(this);
         }
@@ -33,14 +39,14 @@ public class NameCollector extends Visitor<Void> {
     @Override
     public Void visit(ClassDeclaration classDeclaration) {
         ClassSymbolTableItem classSymbolTableItem = new ClassSymbolTableItem(classDeclaration);
-        SymbolTable.push(new SymbolTable(SymbolTable.top));
-        classSymbolTableItem.setClassSymbolTable(SymbolTable.top);
+        context.push(new SymbolTable(context.getTop()));
+        classSymbolTableItem.setClassSymbolTable(context.getTop());
         try {
-            SymbolTable.root.put(classSymbolTableItem);
+            context.getRoot().put(classSymbolTableItem);
         } catch (ItemAlreadyExistsException e) {
             ClassRedefinition exception = new ClassRedefinition(classDeclaration);
             classDeclaration.addError(exception);
-            exception.handleException();
+            exception.handleException(context);
         }
         for(FieldDeclaration fieldDeclaration : classDeclaration.getFields()) {
             fieldDeclaration.accept(this);
@@ -51,7 +57,7 @@ public class NameCollector extends Visitor<Void> {
         for(MethodDeclaration methodDeclaration : classDeclaration.getMethods()) {
             methodDeclaration.accept(this);
         }
-        SymbolTable.pop();
+        context.pop();
         return null;
     }
 
@@ -64,29 +70,29 @@ public class NameCollector extends Visitor<Void> {
     @Override
     public Void visit(MethodDeclaration methodDeclaration) {
         MethodSymbolTableItem methodSymbolTableItem = new MethodSymbolTableItem(methodDeclaration);
-        SymbolTable methodSymbolTable = new SymbolTable(SymbolTable.top);
+        SymbolTable methodSymbolTable = new SymbolTable(context.getTop());
         methodSymbolTableItem.setMethodSymbolTable(methodSymbolTable);
         try {
-            SymbolTable.top.put(methodSymbolTableItem);
+            context.getTop().put(methodSymbolTableItem);
         } catch (ItemAlreadyExistsException e) {
             MethodRedefinition exception = new MethodRedefinition(methodDeclaration);
             methodDeclaration.addError(exception);
         }
-        SymbolTable.push(methodSymbolTable);
+        context.push(methodSymbolTable);
         for(VarDeclaration varDeclaration : methodDeclaration.getArgs()) {
             varDeclaration.accept(this);
         }
         for(VarDeclaration varDeclaration : methodDeclaration.getLocalVars()) {
             varDeclaration.accept(this);
         }
-        SymbolTable.pop();
+        context.pop();
         return null;
     }
 
     @Override
     public Void visit(FieldDeclaration fieldDeclaration) {
         try {
-            SymbolTable.top.put(new FieldSymbolTableItem(fieldDeclaration));
+            context.getTop().put(new FieldSymbolTableItem(fieldDeclaration));
         } catch (ItemAlreadyExistsException e) {
             FieldRedefinition exception = new FieldRedefinition(fieldDeclaration);
             fieldDeclaration.addError(exception);
@@ -97,7 +103,7 @@ public class NameCollector extends Visitor<Void> {
     @Override
     public Void visit(VarDeclaration varDeclaration) {
         try {
-            SymbolTable.top.put(new LocalVariableSymbolTableItem(varDeclaration));
+            context.getTop().put(new LocalVariableSymbolTableItem(varDeclaration));
         } catch (ItemAlreadyExistsException e) {
             LocalVarRedefinition exception = new LocalVarRedefinition(varDeclaration);
             varDeclaration.addError(exception);
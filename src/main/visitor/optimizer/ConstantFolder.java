@@ -0,0 +1,381 @@
+package main.visitor.optimizer;
+
+import main.ast.nodes.Program;
+import main.ast.nodes.declaration.classDec.ClassDeclaration;
+import main.ast.nodes.declaration.classDec.classMembersDec.ConstructorDeclaration;
+import main.ast.nodes.declaration.classDec.classMembersDec.MethodDeclaration;
+import main.ast.nodes.declaration.variableDec.VarDeclaration;
+import main.ast.nodes.expression.*;
+import main.ast.nodes.expression.operators.BinaryOperator;
+import main.ast.nodes.expression.operators.UnaryOperator;
+import main.ast.nodes.expression.values.ListValue;
+import main.ast.nodes.expression.values.NullValue;
+import main.ast.nodes.expression.values.primitive.BoolValue;
+import main.ast.nodes.expression.values.primitive.IntValue;
+import main.ast.nodes.expression.values.primitive.StringValue;
+import main.ast.nodes.statement.*;
+import main.ast.nodes.statement.loop.BreakStmt;
+import main.ast.nodes.statement.loop.ContinueStmt;
+import main.ast.nodes.statement.loop.ForStmt;
+import main.ast.nodes.statement.loop.ForeachStmt;
+import main.ast.types.single.BoolType;
+import main.ast.types.single.IntType;
+import main.visitor.Visitor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+//runs after the type checker, so every expression is known to be well typed
+//expressions return the expression that replaces them, statements are rewritten in place
+public class ConstantFolder extends Visitor<Expression> {
+    //int and bool locals whose value is known at the current statement
+    private Map<String, Expression> constants;
+
+    @Override
+    public Expression visit(Program program) {
+        for (ClassDeclaration classDeclaration : program.getClasses())
+            classDeclaration.accept(this);
+        return null;
+    }
+
+    @Override
+    public Expression visit(ClassDeclaration classDeclaration) {
+        if (classDeclaration.getConstructor() != null)
+            classDeclaration.getConstructor().accept(this);
+        for (MethodDeclaration methodDeclaration : classDeclaration.getMethods())
+            methodDeclaration.accept(this);
+        return null;
+    }
+
+    @Override
+    public Expression visit(ConstructorDeclaration constructorDeclaration) {
+        return this.visit((MethodDeclaration) constructorDeclaration);
+    }
+
+    //a local that is never written keeps its initial value, a local written once by a top level assignment of a
+    //constant has that value in every statement after the assignment
+    @Override
+    public Expression visit(MethodDeclaration methodDeclaration) {
+        VariableUsage variableUsage = new VariableUsage(methodDeclaration);
+        ArrayList<String> propagatedLocals = new ArrayList<>();
+        this.constants = new HashMap<>();
+        for (VarDeclaration varDeclaration : methodDeclaration.getLocalVars()) {
+            String name = varDeclaration.getVarName().getName();
+            if (!(varDeclaration.getType() instanceof IntType) && !(varDeclaration.getType() instanceof BoolType))
+                continue;
+            if (variableUsage.writesOf(name) == 0)
+                constants.put(name, (varDeclaration.getType() instanceof IntType) ? new IntValue(0) : new BoolValue(false));
+            else if (variableUsage.writesOf(name) == 1)
+                propagatedLocals.add(name);
+        }
+        ArrayList<Statement> body = methodDeclaration.getBody();
+        for (int i = 0; i < body.size(); i++) {
+            body.set(i, simplify(body.get(i)));
+            if (!(body.get(i) instanceof AssignmentStmt))
+                continue;
+            AssignmentStmt assignmentStmt = (AssignmentStmt) body.get(i);
+            if ((assignmentStmt.getlValue() instanceof Identifier) && isConstant(assignmentStmt.getrValue())) {
+                String name = ((Identifier) assignmentStmt.getlValue()).getName();
+                if (propagatedLocals.contains(name))
+                    constants.put(name, assignmentStmt.getrValue());
+            }
+        }
+        return null;
+    }
+
+    private static boolean isConstant(Expression expression) {
+        return (expression instanceof IntValue) || (expression instanceof BoolValue);
+    }
+
+    private static Expression intValue(int constant, int line) {
+        IntValue intValue = new IntValue(constant);
+        intValue.setLine(line);
+        return intValue;
+    }
+
+    private static Expression boolValue(boolean constant, int line) {
+        BoolValue boolValue = new BoolValue(constant);
+        boolValue.setLine(line);
+        return boolValue;
+    }
+
+    private static Expression copyOf(Expression constant, int line) {
+        if (constant instanceof IntValue)
+            return intValue(((IntValue) constant).getConstant(), line);
+        return boolValue(((BoolValue) constant).getConstant(), line);
+    }
+
+    private Expression fold(Expression expression) {
+        return expression.accept(this);
+    }
+
+    //an identifier that is written keeps its place, only the parts of other lvalues are folded
+    private Expression foldLvalue(Expression lvalue) {
+        if (lvalue instanceof Identifier)
+            return lvalue;
+        return fold(lvalue);
+    }
+
+    //visits the statement and returns the statement that replaces it, branches on constants keep only the taken side
+    private Statement simplify(Statement statement) {
+        statement.accept(this);
+        if (statement instanceof ConditionalStmt) {
+            ConditionalStmt conditionalStmt = (ConditionalStmt) statement;
+            if (!(conditionalStmt.getCondition() instanceof BoolValue))
+                return statement;
+            if (((BoolValue) conditionalStmt.getCondition()).getConstant())
+                return conditionalStmt.getThenBody();
+            if (conditionalStmt.getElseBody() != null)
+                return conditionalStmt.getElseBody();
+            BlockStmt emptyBlock = new BlockStmt();
+            emptyBlock.setLine(statement.getLine());
+            return emptyBlock;
+        }
+        if (statement instanceof ForStmt) {
+            ForStmt forStmt = (ForStmt) statement;
+            if (!(forStmt.getCondition() instanceof BoolValue) || ((BoolValue) forStmt.getCondition()).getConstant())
+                return statement;
+            BlockStmt initializeBlock = new BlockStmt();
+            initializeBlock.setLine(statement.getLine());
+            if (forStmt.getInitialize() != null)
+                initializeBlock.addStatement(forStmt.getInitialize());
+            return initializeBlock;
+        }
+        return statement;
+    }
+
+    @Override
+    public Expression visit(AssignmentStmt assignmentStmt) {
+        assignmentStmt.setlValue(foldLvalue(assignmentStmt.getlValue()));
+        assignmentStmt.setrValue(fold(assignmentStmt.getrValue()));
+        return null;
+    }
+
+    @Override
+    public Expression visit(BlockStmt blockStmt) {
+        ArrayList<Statement> statements = blockStmt.getStatements();
+        for (int i = 0; i < statements.size(); i++)
+            statements.set(i, simplify(statements.get(i)));
+        return null;
+    }
+
+    @Override
+    public Expression visit(ConditionalStmt conditionalStmt) {
+        conditionalStmt.setCondition(fold(conditionalStmt.getCondition()));
+        conditionalStmt.setThenBody(simplify(conditionalStmt.getThenBody()));
+        if (conditionalStmt.getElseBody() != null)
+            conditionalStmt.setElseBody(simplify(conditionalStmt.getElseBody()));
+        return null;
+    }
+
+    @Override
+    public Expression visit(MethodCallStmt methodCallStmt) {
+        methodCallStmt.getMethodCall().accept(this);
+        return null;
+    }
+
+    @Override
+    public Expression visit(PrintStmt print) {
+        print.setArg(fold(print.getArg()));
+        return null;
+    }
+
+    @Override
+    public Expression visit(ReturnStmt returnStmt) {
+        returnStmt.setReturnedExpr(fold(returnStmt.getReturnedExpr()));
+        return null;
+    }
+
+    @Override
+    public Expression visit(BreakStmt breakStmt) {
+        return null;
+    }
+
+    @Override
+    public Expression visit(ContinueStmt continueStmt) {
+        return null;
+    }
+
+    @Override
+    public Expression visit(ForeachStmt foreachStmt) {
+        foreachStmt.setList(fold(foreachStmt.getList()));
+        if (foreachStmt.getBody() != null)
+            foreachStmt.setBody(simplify(foreachStmt.getBody()));
+        return null;
+    }
+
+    @Override
+    public Expression visit(ForStmt forStmt) {
+        if (forStmt.getInitialize() != null)
+            forStmt.getInitialize().accept(this);
+        if (forStmt.getCondition() != null)
+            forStmt.setCondition(fold(forStmt.getCondition()));
+        if (forStmt.getUpdate() != null)
+            forStmt.getUpdate().accept(this);
+        if (forStmt.getBody() != null)
+            forStmt.setBody(simplify(forStmt.getBody()));
+        return null;
+    }
+
+    @Override
+    public Expression visit(BinaryExpression binaryExpression) {
+        BinaryOperator operator = binaryExpression.getBinaryOperator();
+        if (operator == BinaryOperator.assign) {
+            binaryExpression.setFirstOperand(foldLvalue(binaryExpression.getFirstOperand()));
+            binaryExpression.setSecondOperand(fold(binaryExpression.getSecondOperand()));
+            return binaryExpression;
+        }
+        Expression first = fold(binaryExpression.getFirstOperand());
+        Expression second = fold(binaryExpression.getSecondOperand());
+        binaryExpression.setFirstOperand(first);
+        binaryExpression.setSecondOperand(second);
+        int line = binaryExpression.getLine();
+        //the second operand of and/or is only evaluated when the first one does not decide the result
+        if ((operator == BinaryOperator.and) && (first instanceof BoolValue))
+            return ((BoolValue) first).getConstant() ? second : copyOf(first, line);
+        if ((operator == BinaryOperator.or) && (first instanceof BoolValue))
+            return ((BoolValue) first).getConstant() ? copyOf(first, line) : second;
+        if ((first instanceof BoolValue) && (second instanceof BoolValue)) {
+            boolean firstConstant = ((BoolValue) first).getConstant();
+            boolean secondConstant = ((BoolValue) second).getConstant();
+            if (operator == BinaryOperator.eq)
+                return boolValue(firstConstant == secondConstant, line);
+            if (operator == BinaryOperator.neq)
+                return boolValue(firstConstant != secondConstant, line);
+        }
+        if (!(first instanceof IntValue) || !(second instanceof IntValue))
+            return binaryExpression;
+        int firstConstant = ((IntValue) first).getConstant();
+        int secondConstant = ((IntValue) second).getConstant();
+        switch (operator) {
+            case eq:
+                return boolValue(firstConstant == secondConstant, line);
+            case neq:
+                return boolValue(firstConstant != secondConstant, line);
+            case gt:
+                return boolValue(firstConstant > secondConstant, line);
+            case lt:
+                return boolValue(firstConstant < secondConstant, line);
+            case add:
+                return intValue(firstConstant + secondConstant, line);
+            case sub:
+                return intValue(firstConstant - secondConstant, line);
+            case mult:
+                return intValue(firstConstant * secondConstant, line);
+            //division by zero is left to throw at runtime
+            case div:
+                if (secondConstant != 0)
+                    return intValue(firstConstant / secondConstant, line);
+                break;
+            case mod:
+                if (secondConstant != 0)
+                    return intValue(firstConstant % secondConstant, line);
+                break;
+        }
+        return binaryExpression;
+    }
+
+    @Override
+    public Expression visit(UnaryExpression unaryExpression) {
+        UnaryOperator operator = unaryExpression.getOperator();
+        if ((operator != UnaryOperator.not) && (operator != UnaryOperator.minus)) {
+            unaryExpression.setOperand(foldLvalue(unaryExpression.getOperand()));
+            return unaryExpression;
+        }
+        Expression operand = fold(unaryExpression.getOperand());
+        unaryExpression.setOperand(operand);
+        int line = unaryExpression.getLine();
+        if ((operator == UnaryOperator.minus) && (operand instanceof IntValue))
+            return intValue(-((IntValue) operand).getConstant(), line);
+        if (operator == UnaryOperator.minus)
+            return unaryExpression;
+        if (operand instanceof BoolValue)
+            return boolValue(!((BoolValue) operand).getConstant(), line);
+        if ((operand instanceof UnaryExpression) && (((UnaryExpression) operand).getOperator() == UnaryOperator.not))
+            return ((UnaryExpression) operand).getOperand();
+        if (operand instanceof BinaryExpression) {
+            BinaryExpression comparison = (BinaryExpression) operand;
+            if (comparison.getBinaryOperator() == BinaryOperator.eq) {
+                comparison.setBinaryOperator(BinaryOperator.neq);
+                return comparison;
+            }
+            if (comparison.getBinaryOperator() == BinaryOperator.neq) {
+                comparison.setBinaryOperator(BinaryOperator.eq);
+                return comparison;
+            }
+        }
+        return unaryExpression;
+    }
+
+    @Override
+    public Expression visit(ObjectOrListMemberAccess objectOrListMemberAccess) {
+        objectOrListMemberAccess.setInstance(fold(objectOrListMemberAccess.getInstance()));
+        return objectOrListMemberAccess;
+    }
+
+    @Override
+    public Expression visit(Identifier identifier) {
+        Expression constant = constants.get(identifier.getName());
+        if (constant == null)
+            return identifier;
+        return copyOf(constant, identifier.getLine());
+    }
+
+    @Override
+    public Expression visit(ListAccessByIndex listAccessByIndex) {
+        listAccessByIndex.setInstance(fold(listAccessByIndex.getInstance()));
+        listAccessByIndex.setIndex(fold(listAccessByIndex.getIndex()));
+        return listAccessByIndex;
+    }
+
+    @Override
+    public Expression visit(MethodCall methodCall) {
+        methodCall.setInstance(fold(methodCall.getInstance()));
+        ArrayList<Expression> args = methodCall.getArgs();
+        for (int i = 0; i < args.size(); i++)
+            args.set(i, fold(args.get(i)));
+        return methodCall;
+    }
+
+    @Override
+    public Expression visit(NewClassInstance newClassInstance) {
+        ArrayList<Expression> args = newClassInstance.getArgs();
+        for (int i = 0; i < args.size(); i++)
+            args.set(i, fold(args.get(i)));
+        return newClassInstance;
+    }
+
+    @Override
+    public Expression visit(ThisClass thisClass) {
+        return thisClass;
+    }
+
+    @Override
+    public Expression visit(ListValue listValue) {
+        ArrayList<Expression> elements = listValue.getElements();
+        for (int i = 0; i < elements.size(); i++)
+            elements.set(i, fold(elements.get(i)));
+        return listValue;
+    }
+
+    @Override
+    public Expression visit(NullValue nullValue) {
+        return nullValue;
+    }
+
+    @Override
+    public Expression visit(IntValue intValue) {
+        return intValue;
+    }
+
+    @Override
+    public Expression visit(BoolValue boolValue) {
+        return boolValue;
+    }
+
+    @Override
+    public Expression visit(StringValue stringValue) {
+        return stringValue;
+    }
+}
@@ -0,0 +1,214 @@
+package main.visitor.optimizer;
+
+import main.ast.nodes.Program;
+import main.ast.nodes.declaration.classDec.ClassDeclaration;
+import main.ast.nodes.declaration.classDec.classMembersDec.ConstructorDeclaration;
+import main.ast.nodes.declaration.classDec.classMembersDec.MethodDeclaration;
+import main.ast.nodes.declaration.variableDec.VarDeclaration;
+import main.ast.nodes.expression.*;
+import main.ast.nodes.expression.operators.BinaryOperator;
+import main.ast.nodes.expression.operators.UnaryOperator;
+import main.ast.nodes.expression.values.ListValue;
+import main.ast.nodes.expression.values.Value;
+import main.ast.nodes.expression.values.primitive.IntValue;
+import main.ast.nodes.statement.*;
+import main.ast.nodes.statement.loop.BreakStmt;
+import main.ast.nodes.statement.loop.ContinueStmt;
+import main.ast.nodes.statement.loop.ForStmt;
+import main.ast.nodes.statement.loop.ForeachStmt;
+import main.visitor.Visitor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+//runs after the constant folder, which leaves constant branches and code after the returns they expose
+//statements return whether they never complete normally, so the statements after them are unreachable
+public class DeadCodeEliminator extends Visitor<Boolean> {
+    //locals that are never read, assignments of side effect free values to them are removed
+    private Set<String> deadLocals;
+
+    @Override
+    public Boolean visit(Program program) {
+        for (ClassDeclaration classDeclaration : program.getClasses())
+            classDeclaration.accept(this);
+        return false;
+    }
+
+    @Override
+    public Boolean visit(ClassDeclaration classDeclaration) {
+        if (classDeclaration.getConstructor() != null)
+            classDeclaration.getConstructor().accept(this);
+        for (MethodDeclaration methodDeclaration : classDeclaration.getMethods())
+            methodDeclaration.accept(this);
+        return false;
+    }
+
+    @Override
+    public Boolean visit(ConstructorDeclaration constructorDeclaration) {
+        return this.visit((MethodDeclaration) constructorDeclaration);
+    }
+
+    //the locals that are unused once unreachable code is gone lose their assignments, and then their declarations
+    //so they are not initialized either
+    @Override
+    public Boolean visit(MethodDeclaration methodDeclaration) {
+        this.deadLocals = new HashSet<>();
+        eliminate(methodDeclaration.getBody());
+        VariableUsage variableUsage = new VariableUsage(methodDeclaration);
+        for (VarDeclaration varDeclaration : methodDeclaration.getLocalVars())
+            if (variableUsage.readsOf(varDeclaration.getVarName().getName()) == 0)
+                deadLocals.add(varDeclaration.getVarName().getName());
+        if (deadLocals.isEmpty())
+            return false;
+        eliminate(methodDeclaration.getBody());
+        variableUsage = new VariableUsage(methodDeclaration);
+        ArrayList<VarDeclaration> usedLocals = new ArrayList<>();
+        for (VarDeclaration varDeclaration : methodDeclaration.getLocalVars()) {
+            String name = varDeclaration.getVarName().getName();
+            if ((variableUsage.readsOf(name) != 0) || (variableUsage.writesOf(name) != 0))
+                usedLocals.add(varDeclaration);
+        }
+        methodDeclaration.setLocalVars(usedLocals);
+        return false;
+    }
+
+    //drops empty statements and everything after a statement that never completes normally, returns whether the
+    //remaining statements never complete normally
+    private boolean eliminate(ArrayList<Statement> statements) {
+        ArrayList<Statement> liveStatements = new ArrayList<>();
+        boolean isEnding = false;
+        for (Statement statement : statements) {
+            isEnding = statement.accept(this);
+            if (!isEmpty(statement))
+                liveStatements.add(statement);
+            if (isEnding)
+                break;
+        }
+        statements.clear();
+        statements.addAll(liveStatements);
+        return isEnding;
+    }
+
+    private boolean isEmpty(Statement statement) {
+        if (statement == null)
+            return true;
+        if (statement instanceof BlockStmt)
+            return ((BlockStmt) statement).getStatements().isEmpty();
+        if (statement instanceof ConditionalStmt) {
+            ConditionalStmt conditionalStmt = (ConditionalStmt) statement;
+            return isEmpty(conditionalStmt.getThenBody()) && isEmpty(conditionalStmt.getElseBody()) &&
+                    isSideEffectFree(conditionalStmt.getCondition());
+        }
+        if (statement instanceof AssignmentStmt)
+            return isDeadAssignment((AssignmentStmt) statement);
+        return false;
+    }
+
+    //stores to unread locals and stores of a local to itself
+    private boolean isDeadAssignment(AssignmentStmt assignmentStmt) {
+        if (!(assignmentStmt.getlValue() instanceof Identifier) || !isSideEffectFree(assignmentStmt.getrValue()))
+            return false;
+        String name = ((Identifier) assignmentStmt.getlValue()).getName();
+        if (deadLocals.contains(name))
+            return true;
+        return (assignmentStmt.getrValue() instanceof Identifier) && ((Identifier) assignmentStmt.getrValue()).getName().equals(name);
+    }
+
+    //expressions that can neither write nor throw, field reads through anything but this may throw on null
+    static boolean isSideEffectFree(Expression expression) {
+        if ((expression instanceof Value) && !(expression instanceof ListValue))
+            return true;
+        if ((expression instanceof Identifier) || (expression instanceof ThisClass))
+            return true;
+        if (expression instanceof ListValue) {
+            for (Expression element : ((ListValue) expression).getElements())
+                if (!isSideEffectFree(element))
+                    return false;
+            return true;
+        }
+        if (expression instanceof UnaryExpression) {
+            UnaryOperator operator = ((UnaryExpression) expression).getOperator();
+            return ((operator == UnaryOperator.not) || (operator == UnaryOperator.minus)) &&
+                    isSideEffectFree(((UnaryExpression) expression).getOperand());
+        }
+        if (expression instanceof BinaryExpression) {
+            BinaryExpression binaryExpression = (BinaryExpression) expression;
+            BinaryOperator operator = binaryExpression.getBinaryOperator();
+            if (operator == BinaryOperator.assign)
+                return false;
+            if ((operator == BinaryOperator.div) || (operator == BinaryOperator.mod))
+                if (!(binaryExpression.getSecondOperand() instanceof IntValue) ||
+                        (((IntValue) binaryExpression.getSecondOperand()).getConstant() == 0))
+                    return false;
+            return isSideEffectFree(binaryExpression.getFirstOperand()) && isSideEffectFree(binaryExpression.getSecondOperand());
+        }
+        if (expression instanceof ObjectOrListMemberAccess)
+            return ((ObjectOrListMemberAccess) expression).getInstance() instanceof ThisClass;
+        return false;
+    }
+
+    @Override
+    public Boolean visit(AssignmentStmt assignmentStmt) {
+        return false;
+    }
+
+    @Override
+    public Boolean visit(BlockStmt blockStmt) {
+        return eliminate(blockStmt.getStatements());
+    }
+
+    @Override
+    public Boolean visit(ConditionalStmt conditionalStmt) {
+        boolean isThenEnding = conditionalStmt.getThenBody().accept(this);
+        if (conditionalStmt.getElseBody() == null)
+            return false;
+        boolean isElseEnding = conditionalStmt.getElseBody().accept(this);
+        if (isEmpty(conditionalStmt.getElseBody()))
+            conditionalStmt.setElseBody(null);
+        return isThenEnding && isElseEnding;
+    }
+
+    @Override
+    public Boolean visit(MethodCallStmt methodCallStmt) {
+        return false;
+    }
+
+    @Override
+    public Boolean visit(PrintStmt print) {
+        return false;
+    }
+
+    @Override
+    public Boolean visit(ReturnStmt returnStmt) {
+        return true;
+    }
+
+    @Override
+    public Boolean visit(BreakStmt breakStmt) {
+        return true;
+    }
+
+    @Override
+    public Boolean visit(ContinueStmt continueStmt) {
+        return true;
+    }
+
+    @Override
+    public Boolean visit(ForeachStmt foreachStmt) {
+        if (foreachStmt.getBody() != null)
+            foreachStmt.getBody().accept(this);
+        return false;
+    }
+
+    @Override
+    public Boolean visit(ForStmt forStmt) {
+        if ((forStmt.getInitialize() != null) && isDeadAssignment(forStmt.getInitialize()))
+            forStmt.setInitialize(null);
+        if ((forStmt.getUpdate() != null) && isDeadAssignment(forStmt.getUpdate()))
+            forStmt.setUpdate(null);
+        if (forStmt.getBody() != null)
+            forStmt.getBody().accept(this);
+        return false;
+    }
+}
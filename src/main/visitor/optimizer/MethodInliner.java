@@ -0,0 +1,428 @@
+package main.visitor.optimizer;
+
+import main.ast.nodes.Program;
+import main.ast.nodes.declaration.classDec.ClassDeclaration;
+import main.ast.nodes.declaration.classDec.classMembersDec.ConstructorDeclaration;
+import main.ast.nodes.declaration.classDec.classMembersDec.MethodDeclaration;
+import main.ast.nodes.declaration.variableDec.VarDeclaration;
+import main.ast.nodes.expression.*;
+import main.ast.nodes.expression.operators.BinaryOperator;
+import main.ast.nodes.expression.operators.UnaryOperator;
+import main.ast.nodes.expression.values.ListValue;
+import main.ast.nodes.expression.values.NullValue;
+import main.ast.nodes.expression.values.primitive.BoolValue;
+import main.ast.nodes.expression.values.primitive.IntValue;
+import main.ast.nodes.expression.values.primitive.StringValue;
+import main.ast.nodes.statement.*;
+import main.ast.nodes.statement.loop.BreakStmt;
+import main.ast.nodes.statement.loop.ContinueStmt;
+import main.ast.nodes.statement.loop.ForStmt;
+import main.ast.nodes.statement.loop.ForeachStmt;
+import main.ast.types.Type;
+import main.ast.types.single.BoolType;
+import main.ast.types.single.ClassType;
+import main.ast.types.single.IntType;
+import main.ast.types.single.StringType;
+import main.symbolTable.SymbolTableContext;
+import main.symbolTable.exceptions.ItemNotFoundException;
+import main.symbolTable.items.ClassSymbolTableItem;
+import main.symbolTable.utils.graph.Graph;
+import main.visitor.Visitor;
+import main.visitor.typeChecker.ExpressionTypeChecker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+//replaces calls of small methods that no subclass overrides by the expression the method returns
+//a method is inlined when its body is a single return of an int, bool or string expression of at most sizeBudget
+//nodes that only reads its arguments and the fields of this, so substituting it can not change what the call did
+//runs after the type checker and before the constant folder, which then folds the substituted expressions
+public class MethodInliner extends Visitor<Expression> {
+    private final Graph<String> classHierarchy;
+    private final SymbolTableContext context;
+    private final int sizeBudget;
+    private final ExpressionTypeChecker expressionTypeChecker;
+    private ArrayList<ClassDeclaration> classes;
+
+    public MethodInliner(Graph<String> classHierarchy, SymbolTableContext context, int sizeBudget) {
+        this.classHierarchy = classHierarchy;
+        this.context = context;
+        this.sizeBudget = sizeBudget;
+        this.expressionTypeChecker = new ExpressionTypeChecker(classHierarchy, context);
+    }
+
+    @Override
+    public Expression visit(Program program) {
+        this.classes = program.getClasses();
+        for (ClassDeclaration classDeclaration : program.getClasses())
+            classDeclaration.accept(this);
+        return null;
+    }
+
+    @Override
+    public Expression visit(ClassDeclaration classDeclaration) {
+        expressionTypeChecker.setCurrentClass(classDeclaration);
+        if (classDeclaration.getConstructor() != null)
+            classDeclaration.getConstructor().accept(this);
+        for (MethodDeclaration methodDeclaration : classDeclaration.getMethods())
+            methodDeclaration.accept(this);
+        return null;
+    }
+
+    @Override
+    public Expression visit(ConstructorDeclaration constructorDeclaration) {
+        return this.visit((MethodDeclaration) constructorDeclaration);
+    }
+
+    @Override
+    public Expression visit(MethodDeclaration methodDeclaration) {
+        expressionTypeChecker.setCurrentMethod(methodDeclaration);
+        for (Statement statement : methodDeclaration.getBody())
+            statement.accept(this);
+        return null;
+    }
+
+    private Expression inline(Expression expression) {
+        return expression.accept(this);
+    }
+
+    private ClassSymbolTableItem classSymbolTableItemOf(String className) throws ItemNotFoundException {
+        return (ClassSymbolTableItem) context.getRoot().getItem(ClassSymbolTableItem.START_KEY + className, true);
+    }
+
+    //a subclass of the receiver's class declaring the method again, calls may go there at runtime
+    private boolean isOverridden(String className, String methodName) {
+        for (ClassDeclaration classDeclaration : classes) {
+            String subclassName = classDeclaration.getClassName().getName();
+            if (subclassName.equals(className) || !classHierarchy.isSecondNodeAncestorOf(subclassName, className))
+                continue;
+            for (MethodDeclaration methodDeclaration : classDeclaration.getMethods())
+                if (methodDeclaration.getMethodName().getName().equals(methodName))
+                    return true;
+        }
+        return false;
+    }
+
+    private static boolean isInlinableType(Type type) {
+        return (type instanceof IntType) || (type instanceof BoolType) || (type instanceof StringType);
+    }
+
+    private static boolean isSimple(Expression expression) {
+        return (expression instanceof Identifier) || (expression instanceof ThisClass) || (expression instanceof IntValue) ||
+                (expression instanceof BoolValue) || (expression instanceof StringValue);
+    }
+
+    private static int sizeOf(Expression expression) {
+        if (expression instanceof UnaryExpression)
+            return 1 + sizeOf(((UnaryExpression) expression).getOperand());
+        if (expression instanceof BinaryExpression)
+            return 1 + sizeOf(((BinaryExpression) expression).getFirstOperand()) + sizeOf(((BinaryExpression) expression).getSecondOperand());
+        if (expression instanceof ObjectOrListMemberAccess)
+            return 1 + sizeOf(((ObjectOrListMemberAccess) expression).getInstance());
+        return 1;
+    }
+
+    //values, arguments and fields of this joined by operators that neither write nor call
+    private static boolean onlyReads(Expression expression, Map<String, Type> argumentTypes, ClassSymbolTableItem classSymbolTableItem) {
+        if ((expression instanceof IntValue) || (expression instanceof BoolValue) || (expression instanceof StringValue))
+            return true;
+        if (expression instanceof Identifier)
+            return isInlinableType(argumentTypes.get(((Identifier) expression).getName()));
+        if (expression instanceof ObjectOrListMemberAccess) {
+            ObjectOrListMemberAccess fieldAccess = (ObjectOrListMemberAccess) expression;
+            if (!(fieldAccess.getInstance() instanceof ThisClass))
+                return false;
+            try {
+                String fieldName = fieldAccess.getMemberName().getName();
+                return isInlinableType(classSymbolTableItem.getField(fieldName).getType());
+            } catch (ItemNotFoundException memberIsMethod) {
+                return false;
+            }
+        }
+        if (expression instanceof UnaryExpression) {
+            UnaryOperator operator = ((UnaryExpression) expression).getOperator();
+            return ((operator == UnaryOperator.not) || (operator == UnaryOperator.minus)) &&
+                    onlyReads(((UnaryExpression) expression).getOperand(), argumentTypes, classSymbolTableItem);
+        }
+        if (expression instanceof BinaryExpression) {
+            BinaryExpression binaryExpression = (BinaryExpression) expression;
+            return (binaryExpression.getBinaryOperator() != BinaryOperator.assign) &&
+                    onlyReads(binaryExpression.getFirstOperand(), argumentTypes, classSymbolTableItem) &&
+                    onlyReads(binaryExpression.getSecondOperand(), argumentTypes, classSymbolTableItem);
+        }
+        return false;
+    }
+
+    //the first thing the expression evaluates is a field of this, so a null receiver still throws before anything else
+    private static boolean readsThisFirst(Expression expression) {
+        if (expression instanceof ObjectOrListMemberAccess)
+            return true;
+        if (expression instanceof UnaryExpression)
+            return readsThisFirst(((UnaryExpression) expression).getOperand());
+        if (expression instanceof BinaryExpression)
+            return readsThisFirst(((BinaryExpression) expression).getFirstOperand());
+        return false;
+    }
+
+    private static int usesOf(Expression expression, String name) {
+        if (expression instanceof Identifier)
+            return ((Identifier) expression).getName().equals(name) ? 1 : 0;
+        if (expression instanceof UnaryExpression)
+            return usesOf(((UnaryExpression) expression).getOperand(), name);
+        if (expression instanceof BinaryExpression)
+            return usesOf(((BinaryExpression) expression).getFirstOperand(), name) +
+                    usesOf(((BinaryExpression) expression).getSecondOperand(), name);
+        return 0;
+    }
+
+    //the expression the call is replaced by, null when the call stays
+    private Expression inlinedCall(MethodCall methodCall) {
+        if (!(methodCall.getInstance() instanceof ObjectOrListMemberAccess))
+            return null;
+        ObjectOrListMemberAccess methodAccess = (ObjectOrListMemberAccess) methodCall.getInstance();
+        Expression receiver = methodAccess.getInstance();
+        if (!(receiver instanceof ThisClass) && !(receiver instanceof Identifier))
+            return null;
+        Type receiverType = receiver.accept(expressionTypeChecker);
+        if (!(receiverType instanceof ClassType))
+            return null;
+        String className = ((ClassType) receiverType).getClassName().getName();
+        String methodName = methodAccess.getMemberName().getName();
+        MethodDeclaration callee;
+        ClassSymbolTableItem classSymbolTableItem;
+        try {
+            classSymbolTableItem = classSymbolTableItemOf(className);
+            callee = classSymbolTableItem.getMethod(methodName).getMethodDeclaration();
+        } catch (ItemNotFoundException notMethod) {
+            return null;
+        }
+        if ((callee instanceof ConstructorDeclaration) || !callee.getLocalVars().isEmpty() || (callee.getBody().size() != 1) ||
+                !(callee.getBody().get(0) instanceof ReturnStmt) || !isInlinableType(callee.getReturnType()))
+            return null;
+        Expression returned = ((ReturnStmt) callee.getBody().get(0)).getReturnedExpr();
+        Map<String, Type> argumentTypes = new HashMap<>();
+        for (VarDeclaration arg : callee.getArgs())
+            argumentTypes.put(arg.getVarName().getName(), arg.getType());
+        if ((sizeOf(returned) > sizeBudget) || !onlyReads(returned, argumentTypes, classSymbolTableItem) ||
+                isOverridden(className, methodName))
+            return null;
+        if (!(receiver instanceof ThisClass) && !readsThisFirst(returned))
+            return null;
+
+        //arguments are evaluated once before the body, so only values that can neither write nor throw are moved
+        //into it and only simple ones are evaluated more than once
+        Map<String, Expression> arguments = new HashMap<>();
+        for (int i = 0; i < callee.getArgs().size(); i++) {
+            String name = callee.getArgs().get(i).getVarName().getName();
+            Expression arg = methodCall.getArgs().get(i);
+            if (!DeadCodeEliminator.isSideEffectFree(arg) || ((usesOf(returned, name) > 1) && !isSimple(arg)))
+                return null;
+            arguments.put(name, arg);
+        }
+        return substitute(returned, receiver, arguments, methodCall.getLine());
+    }
+
+    private static Expression copyOf(Expression simple, int line) {
+        Expression copy;
+        if (simple instanceof Identifier)
+            copy = new Identifier(((Identifier) simple).getName());
+        else if (simple instanceof ThisClass)
+            copy = new ThisClass();
+        else if (simple instanceof IntValue)
+            copy = new IntValue(((IntValue) simple).getConstant());
+        else if (simple instanceof BoolValue)
+            copy = new BoolValue(((BoolValue) simple).getConstant());
+        else
+            copy = new StringValue(((StringValue) simple).getConstant());
+        copy.setLine(line);
+        return copy;
+    }
+
+    //a copy of the returned expression with the receiver for this and the call's arguments for the method's
+    private static Expression substitute(Expression expression, Expression receiver, Map<String, Expression> arguments, int line) {
+        Expression substituted;
+        if (expression instanceof Identifier) {
+            Expression arg = arguments.get(((Identifier) expression).getName());
+            return isSimple(arg) ? copyOf(arg, line) : arg;
+        }
+        if (expression instanceof ThisClass)
+            return copyOf(receiver, line);
+        if (isSimple(expression))
+            return copyOf(expression, line);
+        if (expression instanceof ObjectOrListMemberAccess) {
+            ObjectOrListMemberAccess fieldAccess = (ObjectOrListMemberAccess) expression;
+            Identifier fieldName = new Identifier(fieldAccess.getMemberName().getName());
+            fieldName.setLine(line);
+            substituted = new ObjectOrListMemberAccess(substitute(fieldAccess.getInstance(), receiver, arguments, line), fieldName);
+        } else if (expression instanceof UnaryExpression) {
+            UnaryExpression unaryExpression = (UnaryExpression) expression;
+            substituted = new UnaryExpression(substitute(unaryExpression.getOperand(), receiver, arguments, line), unaryExpression.getOperator());
+        } else {
+            BinaryExpression binaryExpression = (BinaryExpression) expression;
+            substituted = new BinaryExpression(substitute(binaryExpression.getFirstOperand(), receiver, arguments, line),
+                    substitute(binaryExpression.getSecondOperand(), receiver, arguments, line), binaryExpression.getBinaryOperator());
+        }
+        substituted.setLine(line);
+        return substituted;
+    }
+
+    @Override
+    public Expression visit(AssignmentStmt assignmentStmt) {
+        assignmentStmt.setlValue(inline(assignmentStmt.getlValue()));
+        assignmentStmt.setrValue(inline(assignmentStmt.getrValue()));
+        return null;
+    }
+
+    @Override
+    public Expression visit(BlockStmt blockStmt) {
+        for (Statement statement : blockStmt.getStatements())
+            statement.accept(this);
+        return null;
+    }
+
+    @Override
+    public Expression visit(ConditionalStmt conditionalStmt) {
+        conditionalStmt.setCondition(inline(conditionalStmt.getCondition()));
+        conditionalStmt.getThenBody().accept(this);
+        if (conditionalStmt.getElseBody() != null)
+            conditionalStmt.getElseBody().accept(this);
+        return null;
+    }
+
+    //the value of a call statement is not used, only its arguments are inlined into
+    @Override
+    public Expression visit(MethodCallStmt methodCallStmt) {
+        inlineArgs(methodCallStmt.getMethodCall());
+        return null;
+    }
+
+    @Override
+    public Expression visit(PrintStmt print) {
+        print.setArg(inline(print.getArg()));
+        return null;
+    }
+
+    @Override
+    public Expression visit(ReturnStmt returnStmt) {
+        returnStmt.setReturnedExpr(inline(returnStmt.getReturnedExpr()));
+        return null;
+    }
+
+    @Override
+    public Expression visit(BreakStmt breakStmt) {
+        return null;
+    }
+
+    @Override
+    public Expression visit(ContinueStmt continueStmt) {
+        return null;
+    }
+
+    @Override
+    public Expression visit(ForeachStmt foreachStmt) {
+        foreachStmt.setList(inline(foreachStmt.getList()));
+        if (foreachStmt.getBody() != null)
+            foreachStmt.getBody().accept(this);
+        return null;
+    }
+
+    @Override
+    public Expression visit(ForStmt forStmt) {
+        if (forStmt.getInitialize() != null)
+            forStmt.getInitialize().accept(this);
+        if (forStmt.getCondition() != null)
+            forStmt.setCondition(inline(forStmt.getCondition()));
+        if (forStmt.getUpdate() != null)
+            forStmt.getUpdate().accept(this);
+        if (forStmt.getBody() != null)
+            forStmt.getBody().accept(this);
+        return null;
+    }
+
+    @Override
+    public Expression visit(BinaryExpression binaryExpression) {
+        binaryExpression.setFirstOperand(inline(binaryExpression.getFirstOperand()));
+        binaryExpression.setSecondOperand(inline(binaryExpression.getSecondOperand()));
+        return binaryExpression;
+    }
+
+    @Override
+    public Expression visit(UnaryExpression unaryExpression) {
+        unaryExpression.setOperand(inline(unaryExpression.getOperand()));
+        return unaryExpression;
+    }
+
+    @Override
+    public Expression visit(ObjectOrListMemberAccess objectOrListMemberAccess) {
+        objectOrListMemberAccess.setInstance(inline(objectOrListMemberAccess.getInstance()));
+        return objectOrListMemberAccess;
+    }
+
+    @Override
+    public Expression visit(Identifier identifier) {
+        return identifier;
+    }
+
+    @Override
+    public Expression visit(ListAccessByIndex listAccessByIndex) {
+        listAccessByIndex.setInstance(inline(listAccessByIndex.getInstance()));
+        listAccessByIndex.setIndex(inline(listAccessByIndex.getIndex()));
+        return listAccessByIndex;
+    }
+
+    private void inlineArgs(MethodCall methodCall) {
+        methodCall.setInstance(inline(methodCall.getInstance()));
+        ArrayList<Expression> args = methodCall.getArgs();
+        for (int i = 0; i < args.size(); i++)
+            args.set(i, inline(args.get(i)));
+    }
+
+    @Override
+    public Expression visit(MethodCall methodCall) {
+        inlineArgs(methodCall);
+        Expression inlined = inlinedCall(methodCall);
+        return (inlined == null) ? methodCall : inlined;
+    }
+
+    @Override
+    public Expression visit(NewClassInstance newClassInstance) {
+        ArrayList<Expression> args = newClassInstance.getArgs();
+        for (int i = 0; i < args.size(); i++)
+            args.set(i, inline(args.get(i)));
+        return newClassInstance;
+    }
+
+    @Override
+    public Expression visit(ThisClass thisClass) {
+        return thisClass;
+    }
+
+    @Override
+    public Expression visit(ListValue listValue) {
+        ArrayList<Expression> elements = listValue.getElements();
+        for (int i = 0; i < elements.size(); i++)
+            elements.set(i, inline(elements.get(i)));
+        return listValue;
+    }
+
+    @Override
+    public Expression visit(NullValue nullValue) {
+        return nullValue;
+    }
+
+    @Override
+    public Expression visit(IntValue intValue) {
+        return intValue;
+    }
+
+    @Override
+    public Expression visit(BoolValue boolValue) {
+        return boolValue;
+    }
+
+    @Override
+    public Expression visit(StringValue stringValue) {
+        return stringValue;
+    }
+}
@@ -0,0 +1,167 @@
+package main.visitor.optimizer;
+
+import main.ast.nodes.declaration.classDec.classMembersDec.MethodDeclaration;
+import main.ast.nodes.expression.*;
+import main.ast.nodes.expression.operators.BinaryOperator;
+import main.ast.nodes.expression.operators.UnaryOperator;
+import main.ast.nodes.expression.values.ListValue;
+import main.ast.nodes.statement.*;
+import main.ast.nodes.statement.loop.ForStmt;
+import main.ast.nodes.statement.loop.ForeachStmt;
+import main.visitor.Visitor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//counts how many times each variable of a method is read and written
+//bare identifiers are always locals or arguments, fields are reached through this
+public class VariableUsage extends Visitor<Void> {
+    private Map<String, Integer> reads;
+    private Map<String, Integer> writes;
+
+    public VariableUsage(MethodDeclaration methodDeclaration) {
+        this.reads = new HashMap<>();
+        this.writes = new HashMap<>();
+        for (Statement statement : methodDeclaration.getBody())
+            statement.accept(this);
+    }
+
+    public int readsOf(String name) {
+        return reads.getOrDefault(name, 0);
+    }
+
+    public int writesOf(String name) {
+        return writes.getOrDefault(name, 0);
+    }
+
+    private void write(Expression lvalue) {
+        if (lvalue instanceof Identifier)
+            writes.merge(((Identifier) lvalue).getName(), 1, Integer::sum);
+        else
+            lvalue.accept(this);
+    }
+
+    @Override
+    public Void visit(AssignmentStmt assignmentStmt) {
+        write(assignmentStmt.getlValue());
+        assignmentStmt.getrValue().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(BlockStmt blockStmt) {
+        for (Statement statement : blockStmt.getStatements())
+            statement.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(ConditionalStmt conditionalStmt) {
+        conditionalStmt.getCondition().accept(this);
+        conditionalStmt.getThenBody().accept(this);
+        if (conditionalStmt.getElseBody() != null)
+            conditionalStmt.getElseBody().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(MethodCallStmt methodCallStmt) {
+        methodCallStmt.getMethodCall().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(PrintStmt print) {
+        print.getArg().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(ReturnStmt returnStmt) {
+        returnStmt.getReturnedExpr().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(ForeachStmt foreachStmt) {
+        write(foreachStmt.getVariable());
+        foreachStmt.getList().accept(this);
+        if (foreachStmt.getBody() != null)
+            foreachStmt.getBody().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(ForStmt forStmt) {
+        if (forStmt.getInitialize() != null)
+            forStmt.getInitialize().accept(this);
+        if (forStmt.getCondition() != null)
+            forStmt.getCondition().accept(this);
+        if (forStmt.getUpdate() != null)
+            forStmt.getUpdate().accept(this);
+        if (forStmt.getBody() != null)
+            forStmt.getBody().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(BinaryExpression binaryExpression) {
+        if (binaryExpression.getBinaryOperator() == BinaryOperator.assign)
+            write(binaryExpression.getFirstOperand());
+        else
+            binaryExpression.getFirstOperand().accept(this);
+        binaryExpression.getSecondOperand().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(UnaryExpression unaryExpression) {
+        UnaryOperator operator = unaryExpression.getOperator();
+        boolean isIncDec = (operator != UnaryOperator.not) && (operator != UnaryOperator.minus);
+        if (isIncDec && (unaryExpression.getOperand() instanceof Identifier))
+            write(unaryExpression.getOperand());
+        unaryExpression.getOperand().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(ObjectOrListMemberAccess objectOrListMemberAccess) {
+        objectOrListMemberAccess.getInstance().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(Identifier identifier) {
+        reads.merge(identifier.getName(), 1, Integer::sum);
+        return null;
+    }
+
+    @Override
+    public Void visit(ListAccessByIndex listAccessByIndex) {
+        listAccessByIndex.getInstance().accept(this);
+        listAccessByIndex.getIndex().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(MethodCall methodCall) {
+        methodCall.getInstance().accept(this);
+        for (Expression arg : methodCall.getArgs())
+            arg.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(NewClassInstance newClassInstance) {
+        for (Expression arg : newClassInstance.getArgs())
+            arg.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(ListValue listValue) {
+        for (Expression element : listValue.getElements())
+            element.accept(this);
+        return null;
+    }
+}
@@ -21,8 +21,10 @@ import main.ast.types.single.BoolType;
 import main.ast.types.single.ClassType;
 import main.ast.types.single.IntType;
 import main.ast.types.single.StringType;
+import main.compileErrorException.CompileErrorException;
 import main.compileErrorException.typeErrors.*;
 import main.symbolTable.SymbolTable;
+import main.symbolTable.SymbolTableContext;
 import main.symbolTable.exceptions.ItemNotFoundException;
 import main.symbolTable.items.ClassSymbolTableItem;
 import main.symbolTable.items.FieldSymbolTableItem;
@@ -35,14 +37,23 @@ import java.util.ArrayList;
 
 public class ExpressionTypeChecker extends Visitor<Type> {
     private final Graph<String> classHierarchy;
+    private final SymbolTableContext context;
     private ClassDeclaration currentClass;
     private MethodDeclaration currentMethod;
     private int typeValidationNumberOfErrors;
     private boolean seenNoneLvalue = false;
     private boolean isInMethodCallStmt = false;
+    //off while an expression is visited again only to see whether it is an lvalue, its errors were reported already
+    private boolean isCatchErrorsActive = true;
 
-    public ExpressionTypeChecker(Graph<String> classHierarchy) {
+    public ExpressionTypeChecker(Graph<String> classHierarchy, SymbolTableContext context) {
         this.classHierarchy = classHierarchy;
+        this.context = context;
+    }
+
+    private void addError(Node node, CompileErrorException exception) {
+        if (this.isCatchErrorsActive)
+            node.addError(exception);
     }
 
     public void setCurrentClass(ClassDeclaration currentClass) {
@@ -121,7 +132,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
             ArrayList<ListNameType> types = ((ListType) type).getElementsTypes();
             if(types.size() == 0) {
                 CannotHaveEmptyList exception = new CannotHaveEmptyList(node.getLine());
-                node.addError(exception);
+                this.addError(node, exception);
                 typeValidationNumberOfErrors += 1;
                 return;
             }
@@ -134,7 +145,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
                         continue;
                     if(first.equals(second)) {
                         DuplicateListId exception = new DuplicateListId(node.getLine());
-                        node.addError(exception);
+                        this.addError(node, exception);
                         typeValidationNumberOfErrors += 1;
                         flag = true;
                         break;
@@ -150,7 +161,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
             String className = ((ClassType)type).getClassName().getName();
             if(!this.classHierarchy.doesGraphContainNode(className)) {
                 ClassNotDeclared exception = new ClassNotDeclared(node.getLine(), className);
-                node.addError(exception);
+                this.addError(node, exception);
                 typeValidationNumberOfErrors += 1;
             }
         }
@@ -178,14 +189,14 @@ public class ExpressionTypeChecker extends Visitor<Type> {
     }
 
     public boolean isLvalue(Expression expression) {
-        boolean prevIsCatchErrorsActive = Node.isCatchErrorsActive;
+        boolean prevIsCatchErrorsActive = this.isCatchErrorsActive;
         boolean prevSeenNoneLvalue = this.seenNoneLvalue;
-        Node.isCatchErrorsActive = false;
+        this.isCatchErrorsActive = false;
         this.seenNoneLvalue = false;
         expression.accept(this);
         boolean isLvalue = !this.seenNoneLvalue;
         this.seenNoneLvalue = prevSeenNoneLvalue;
-        Node.isCatchErrorsActive = prevIsCatchErrorsActive;
+        this.isCatchErrorsActive = prevIsCatchErrorsActive;
         return isLvalue;
     }
 
@@ -201,7 +212,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
             else if((firstType instanceof NoType && secondType instanceof ListType) ||
                     (secondType instanceof NoType && firstType instanceof ListType)) {
                 UnsupportedOperandType exception = new UnsupportedOperandType(binaryExpression.getLine(), operator.name());
-                binaryExpression.addError(exception);
+                this.addError(binaryExpression, exception);
                 return new NoType();
             }
             else if(firstType instanceof NoType || secondType instanceof NoType)
@@ -229,7 +240,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
             else if((firstType instanceof NoType && !(secondType instanceof IntType)) ||
                     (secondType instanceof NoType && !(firstType instanceof IntType))) {
                 UnsupportedOperandType exception = new UnsupportedOperandType(binaryExpression.getLine(), operator.name());
-                binaryExpression.addError(exception);
+                this.addError(binaryExpression, exception);
                 return new NoType();
             }
             else if(firstType instanceof NoType || secondType instanceof NoType)
@@ -244,7 +255,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
             else if((firstType instanceof NoType && !(secondType instanceof IntType)) ||
                     (secondType instanceof NoType && !(firstType instanceof IntType))) {
                 UnsupportedOperandType exception = new UnsupportedOperandType(binaryExpression.getLine(), operator.name());
-                binaryExpression.addError(exception);
+                this.addError(binaryExpression, exception);
                 return new NoType();
             }
             else if(firstType instanceof NoType || secondType instanceof NoType)
@@ -259,7 +270,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
             else if((firstType instanceof NoType && !(secondType instanceof BoolType)) ||
                     (secondType instanceof NoType && !(firstType instanceof BoolType))) {
                 UnsupportedOperandType exception = new UnsupportedOperandType(binaryExpression.getLine(), operator.name());
-                binaryExpression.addError(exception);
+                this.addError(binaryExpression, exception);
                 return new NoType();
             }
             else if(firstType instanceof NoType || secondType instanceof NoType)
@@ -271,7 +282,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
             boolean isFirstLvalue = this.isLvalue(binaryExpression.getFirstOperand());
             if(!isFirstLvalue) {
                 LeftSideNotLvalue exception = new LeftSideNotLvalue(binaryExpression.getLine());
-                binaryExpression.addError(exception);
+                this.addError(binaryExpression, exception);
             }
             if(firstType instanceof NoType || secondType instanceof NoType) {
                 return new NoType();
@@ -283,11 +294,11 @@ public class ExpressionTypeChecker extends Visitor<Type> {
                 return new NoType();
             }
             UnsupportedOperandType exception = new UnsupportedOperandType(binaryExpression.getLine(), operator.name());
-            binaryExpression.addError(exception);
+            this.addError(binaryExpression, exception);
             return new NoType();
         }
         UnsupportedOperandType exception = new UnsupportedOperandType(binaryExpression.getLine(), operator.name());
-        binaryExpression.addError(exception);
+        this.addError(binaryExpression, exception);
         return new NoType();
     }
 
@@ -302,7 +313,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
             if(operandType instanceof BoolType)
                 return operandType;
             UnsupportedOperandType exception = new UnsupportedOperandType(unaryExpression.getLine(), operator.name());
-            unaryExpression.addError(exception);
+            this.addError(unaryExpression, exception);
             return new NoType();
         }
         else if(operator == UnaryOperator.minus) {
@@ -311,14 +322,14 @@ public class ExpressionTypeChecker extends Visitor<Type> {
             if(operandType instanceof IntType)
                 return operandType;
             UnsupportedOperandType exception = new UnsupportedOperandType(unaryExpression.getLine(), operator.name());
-            unaryExpression.addError(exception);
+            this.addError(unaryExpression, exception);
             return new NoType();
         }
         else {
             boolean isOperandLvalue = this.isLvalue(unaryExpression.getOperand());
             if(!isOperandLvalue) {
                 IncDecOperandNotLvalue exception = new IncDecOperandNotLvalue(unaryExpression.getLine(), operator.name());
-                unaryExpression.addError(exception);
+                this.addError(unaryExpression, exception);
             }
             if(operandType instanceof NoType)
                 return new NoType();
@@ -328,7 +339,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
                 return new NoType();
             }
             UnsupportedOperandType exception = new UnsupportedOperandType(unaryExpression.getLine(), operator.name());
-            unaryExpression.addError(exception);
+            this.addError(unaryExpression, exception);
             return new NoType();
         }
     }
@@ -344,18 +355,18 @@ public class ExpressionTypeChecker extends Visitor<Type> {
             return new NoType();
         else if(instanceType instanceof ClassType) {
             String className = ((ClassType) instanceType).getClassName().getName();
-            SymbolTable classSymbolTable;
+            ClassSymbolTableItem classSymbolTableItem;
             try {
-                classSymbolTable = ((ClassSymbolTableItem) SymbolTable.root.getItem(ClassSymbolTableItem.START_KEY + className, true)).getClassSymbolTable();
+                classSymbolTableItem = (ClassSymbolTableItem) context.getRoot().getItem(ClassSymbolTableItem.START_KEY + className, true);
             } catch (ItemNotFoundException classNotFound) {
                 return new NoType();
             }
             try {
-                FieldSymbolTableItem fieldSymbolTableItem = (FieldSymbolTableItem) classSymbolTable.getItem(FieldSymbolTableItem.START_KEY + memberName, true);
+                FieldSymbolTableItem fieldSymbolTableItem = classSymbolTableItem.getField(memberName);
                 return this.refineType(fieldSymbolTableItem.getType());
             } catch (ItemNotFoundException memberNotField) {
                 try {
-                    MethodSymbolTableItem methodSymbolTableItem = (MethodSymbolTableItem) classSymbolTable.getItem(MethodSymbolTableItem.START_KEY + memberName, true);
+                    MethodSymbolTableItem methodSymbolTableItem = classSymbolTableItem.getMethod(memberName);
                     this.seenNoneLvalue = true;
                     return new FptrType(methodSymbolTableItem.getArgTypes(), methodSymbolTableItem.getReturnType());
                 } catch (ItemNotFoundException memberNotFound) {
@@ -364,7 +375,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
                         return new FptrType(new ArrayList<>(), new NullType());
                     }
                     MemberNotAvailableInClass exception = new MemberNotAvailableInClass(objectOrListMemberAccess.getLine(), memberName, className);
-                    objectOrListMemberAccess.addError(exception);
+                    this.addError(objectOrListMemberAccess, exception);
                     return new NoType();
                 }
             }
@@ -376,12 +387,12 @@ public class ExpressionTypeChecker extends Visitor<Type> {
                     return this.refineType(elementType.getType());
             }
             ListMemberNotFound exception = new ListMemberNotFound(objectOrListMemberAccess.getLine(), memberName);
-            objectOrListMemberAccess.addError(exception);
+            this.addError(objectOrListMemberAccess, exception);
             return new NoType();
         }
         else {
             MemberAccessOnNoneObjOrListType exception = new MemberAccessOnNoneObjOrListType(objectOrListMemberAccess.getLine());
-            objectOrListMemberAccess.addError(exception);
+            this.addError(objectOrListMemberAccess, exception);
             return new NoType();
         }
     }
@@ -389,15 +400,14 @@ public class ExpressionTypeChecker extends Visitor<Type> {
     @Override
     public Type visit(Identifier identifier) {
         try {
-            ClassSymbolTableItem classSymbolTableItem = (ClassSymbolTableItem) SymbolTable.root.getItem(ClassSymbolTableItem.START_KEY + this.currentClass.getClassName().getName(), true);
-            SymbolTable classSymbolTable = classSymbolTableItem.getClassSymbolTable();
-            MethodSymbolTableItem methodSymbolTableItem = (MethodSymbolTableItem) classSymbolTable.getItem(MethodSymbolTableItem.START_KEY + this.currentMethod.getMethodName().getName(), true);
+            ClassSymbolTableItem classSymbolTableItem = (ClassSymbolTableItem) context.getRoot().getItem(ClassSymbolTableItem.START_KEY + this.currentClass.getClassName().getName(), true);
+            MethodSymbolTableItem methodSymbolTableItem = classSymbolTableItem.getMethod(this.currentMethod.getMethodName().getName());
             SymbolTable methodSymbolTable = methodSymbolTableItem.getMethodSymbolTable();
             LocalVariableSymbolTableItem localVariableSymbolTableItem = (LocalVariableSymbolTableItem) methodSymbolTable.getItem(LocalVariableSymbolTableItem.START_KEY + identifier.getName(), true);
             return this.refineType(localVariableSymbolTableItem.getType());
         } catch (ItemNotFoundException e) {
             VarNotDeclared exception = new VarNotDeclared(identifier.getLine(), identifier.getName());
-            identifier.addError(exception);
+            this.addError(identifier, exception);
             return new NoType();
         }
     }
@@ -411,7 +421,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
         boolean indexErrored = false;
         if(!(indexType instanceof NoType || indexType instanceof IntType)) {
             ListIndexNotInt exception = new ListIndexNotInt(listAccessByIndex.getLine());
-            listAccessByIndex.addError(exception);
+            this.addError(listAccessByIndex, exception);
             indexErrored = true;
         }
         if(instanceType instanceof ListType) {
@@ -421,7 +431,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
             boolean areAllSame = this.areAllSameType(types);
             if(!(listAccessByIndex.getIndex() instanceof IntValue) && !areAllSame) {
                 CantUseExprAsIndexOfMultiTypeList exception = new CantUseExprAsIndexOfMultiTypeList(listAccessByIndex.getLine());
-                listAccessByIndex.addError(exception);
+                this.addError(listAccessByIndex, exception);
                 return new NoType();
             }
             if(indexErrored)
@@ -436,7 +446,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
         }
         else if(!(instanceType instanceof NoType)) {
             ListAccessByIndexOnNoneList exception = new ListAccessByIndexOnNoneList(listAccessByIndex.getLine());
-            listAccessByIndex.addError(exception);
+            this.addError(listAccessByIndex, exception);
         }
         return new NoType();
     }
@@ -454,7 +464,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
         this.setIsInMethodCallStmt(prevIsInMethodCallStmt);
         if(!(instanceType instanceof FptrType || instanceType instanceof NoType)) {
             CallOnNoneFptrType exception = new CallOnNoneFptrType(methodCall.getLine());
-            methodCall.addError(exception);
+            this.addError(methodCall, exception);
             return new NoType();
         }
         else if(instanceType instanceof NoType) {
@@ -466,7 +476,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
             boolean hasError = false;
             if(!isInMethodCallStmt && (returnType instanceof NullType)) {
                 CantUseValueOfVoidMethod exception = new CantUseValueOfVoidMethod(methodCall.getLine());
-                methodCall.addError(exception);
+                this.addError(methodCall, exception);
                 hasError = true;
             }
             if(this.isFirstSubTypeOfSecondMultiple(argsTypes, actualArgsTypes)) {
@@ -476,7 +486,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
             }
             else {
                 MethodCallNotMatchDefinition exception = new MethodCallNotMatchDefinition(methodCall.getLine());
-                methodCall.addError(exception);
+                this.addError(methodCall, exception);
                 return new NoType();
             }
         }
@@ -491,21 +501,21 @@ public class ExpressionTypeChecker extends Visitor<Type> {
             newInstanceTypes.add(expression.accept(this));
         if(this.classHierarchy.doesGraphContainNode(className)) {
             try {
-                ClassSymbolTableItem classSymbolTableItem = (ClassSymbolTableItem) SymbolTable.root.getItem(ClassSymbolTableItem.START_KEY + className, true);
-                MethodSymbolTableItem methodSymbolTableItem = (MethodSymbolTableItem) classSymbolTableItem.getClassSymbolTable().getItem(MethodSymbolTableItem.START_KEY + className, true);
+                ClassSymbolTableItem classSymbolTableItem = (ClassSymbolTableItem) context.getRoot().getItem(ClassSymbolTableItem.START_KEY + className, true);
+                MethodSymbolTableItem methodSymbolTableItem = classSymbolTableItem.getMethod(className);
                 ArrayList<Type> constructorActualTypes = methodSymbolTableItem.getArgTypes();
                 if(this.isFirstSubTypeOfSecondMultiple(newInstanceTypes, constructorActualTypes)) {
                     return newClassInstance.getClassType();
                 }
                 else {
                     ConstructorArgsNotMatchDefinition exception = new ConstructorArgsNotMatchDefinition(newClassInstance);
-                    newClassInstance.addError(exception);
+                    this.addError(newClassInstance, exception);
                     return new NoType();
                 }
             } catch (ItemNotFoundException ignored) {
                 if(newInstanceTypes.size() != 0) {
                     ConstructorArgsNotMatchDefinition exception = new ConstructorArgsNotMatchDefinition(newClassInstance);
-                    newClassInstance.addError(exception);
+                    this.addError(newClassInstance, exception);
                     return new NoType();
                 }
                 else {
@@ -515,7 +525,7 @@ public class ExpressionTypeChecker extends Visitor<Type> {
         }
         else {
             ClassNotDeclared exception = new ClassNotDeclared(newClassInstance.getLine(), className);
-            newClassInstance.addError(exception);
+            this.addError(newClassInstance, exception);
             return new NoType();
         }
     }
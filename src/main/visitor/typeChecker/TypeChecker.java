@@ -24,6 +24,7 @@ import main.ast.types.single.ClassType;
 import main.ast.types.single.IntType;
 import main.ast.types.single.StringType;
 import main.compileErrorException.typeErrors.*;
+import main.symbolTable.SymbolTableContext;
 import main.symbolTable.utils.graph.Graph;
 import main.visitor.Visitor;
 
@@ -36,9 +37,9 @@ public class TypeChecker extends Visitor<RetConBrk> {
     private MethodDeclaration currentMethod;
     private boolean isInFor = false;
 
-    public TypeChecker(Graph<String> classHierarchy) {
+    public TypeChecker(Graph<String> classHierarchy, SymbolTableContext context) {
         this.classHierarchy = classHierarchy;
-        this.expressionTypeChecker = new ExpressionTypeChecker(classHierarchy);
+        this.expressionTypeChecker = new ExpressionTypeChecker(classHierarchy, context);
     }
 
     @Override
@@ -21,14 +21,32 @@ import main.ast.nodes.statement.loop.ForeachStmt;
 import main.compileErrorException.CompileErrorException;
 import main.visitor.Visitor;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
 
 public class ErrorReporter extends Visitor<Integer> {
+    private PrintStream out;
+    //every message printed so far, in order
+    private ArrayList<String> messages;
+
+    public ErrorReporter() {
+        this(System.out);
+    }
+
+    public ErrorReporter(PrintStream out) {
+        this.out = out;
+        this.messages = new ArrayList<>();
+    }
+
+    public ArrayList<String> getMessages() {
+        return messages;
+    }
 
     private int printErrors(Node node) {
         ArrayList<CompileErrorException> errors = node.flushErrors();
         for(CompileErrorException compileErrorException : errors) {
-            System.out.println(compileErrorException.getMessage());
+            out.println(compileErrorException.getMessage());
+            messages.add(compileErrorException.getMessage());
         }
         return errors.size();
     }
@@ -0,0 +1,60 @@
+import java.util.Arrays;
+
+public class BoolList {
+    //one bit per element, shared by copies of a list like the elements of IntList
+    private long[] bits;
+    private int size;
+    private int[] owners;
+
+    public BoolList(boolean[] newElements) {
+        this.size = newElements.length;
+        this.bits = new long[(this.size + 63) >> 6];
+        for(int i = 0; i < this.size; i++)
+            if(newElements[i])
+                this.bits[i >> 6] |= 1L << i;
+        this.owners = new int[] {1};
+    }
+
+    private BoolList(BoolList that) {
+        this.bits = that.bits;
+        this.size = that.size;
+        this.owners = that.owners;
+        this.owners[0] += 1;
+    }
+
+    public BoolList copy() {
+        return new BoolList(this);
+    }
+
+    private void makeUnique() {
+        if(this.owners[0] == 1)
+            return;
+        this.owners[0] -= 1;
+        this.bits = Arrays.copyOf(this.bits, this.bits.length);
+        this.owners = new int[] {1};
+    }
+
+    private void checkIndex(int index) {
+        if(index < 0 || index >= this.size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean get(int index) {
+        checkIndex(index);
+        return (this.bits[index >> 6] & (1L << index)) != 0;
+    }
+
+    public void set(int index, boolean value) {
+        checkIndex(index);
+        makeUnique();
+        if(value)
+            this.bits[index >> 6] |= 1L << index;
+        else
+            this.bits[index >> 6] &= ~(1L << index);
+    }
+
+}
@@ -1,36 +1,90 @@
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 public class Fptr {
+    //receiver class -> method name -> unbound handle
+    private static final HashMap<Class<?>, HashMap<String, MethodHandle>> handles = new HashMap<>();
+    //"interface receiver method" -> factory of the interface implementation
+    private static final HashMap<String, MethodHandle> factories = new HashMap<>();
+
     Object instance;
     String methodName;
+    MethodHandle handle;
+    //implements the generated functional interface of the pointer's signature, called directly by generated code
+    Object target;
 
     public Fptr(Object instance, String methodName) {
         this.instance = instance;
         this.methodName = methodName;
     }
 
-    public Object invoke(ArrayList<Object> arguments) {
-        int argumentsSize = arguments.size();
-        Class[] argsClasses = new Class[argumentsSize];
-        Object[] argsArray = new Object[argumentsSize];
-        for(int i = 0; i < argumentsSize; i++) {
-            argsClasses[i] = arguments.get(i).getClass();
-            argsArray[i] = arguments.get(i);
-        }
-        Method objectMethod = null;
+    //a pointer to a method of null has no target, calling it fails in invoke like any other pointer
+    public Fptr(Object instance, String methodName, String interfaceName) {
+        this(instance, methodName);
+        if(instance == null)
+            return;
         try {
-            objectMethod = this.instance.getClass().getMethod(this.methodName, argsClasses);
-        } catch (NoSuchMethodException e) { 
-            e.printStackTrace();
+            this.target = factoryOf(interfaceName).invoke(instance);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //sophia methods are not overloaded, so name and arity find the method even with int and boolean parameters
+    private Method findMethod(int argumentsSize) {
+        for(Method candidate : this.instance.getClass().getMethods())
+            if(candidate.getName().equals(this.methodName) && candidate.getParameterCount() == argumentsSize)
+                return candidate;
+        return null;
+    }
+
+    private MethodHandle factoryOf(String interfaceName) throws Throwable {
+        String key = interfaceName + " " + this.instance.getClass().getName() + " " + this.methodName;
+        MethodHandle factory = factories.get(key);
+        if(factory == null) {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> functionalInterface = Class.forName(interfaceName, true, getClass().getClassLoader());
+            Method interfaceMethod = functionalInterface.getMethods()[0];
+            MethodType methodType = MethodType.methodType(interfaceMethod.getReturnType(), interfaceMethod.getParameterTypes());
+            Method implementation = findMethod(interfaceMethod.getParameterCount());
+            factory = LambdaMetafactory.metafactory(lookup, interfaceMethod.getName(),
+                    MethodType.methodType(functionalInterface, implementation.getDeclaringClass()),
+                    methodType, lookup.unreflect(implementation), methodType).getTarget();
+            factories.put(key, factory);
         }
+        return factory;
+    }
+
+    private MethodHandle resolve(int argumentsSize) throws IllegalAccessException {
+        HashMap<String, MethodHandle> classHandles = handles.get(this.instance.getClass());
+        if(classHandles == null) {
+            classHandles = new HashMap<>();
+            handles.put(this.instance.getClass(), classHandles);
+        }
+        MethodHandle unboundHandle = classHandles.get(this.methodName);
+        if(unboundHandle == null) {
+            unboundHandle = MethodHandles.lookup().unreflect(findMethod(argumentsSize));
+            classHandles.put(this.methodName, unboundHandle);
+        }
+        return unboundHandle.bindTo(this.instance);
+    }
+
+    public Object invoke(ArrayList<Object> arguments) {
         try {
-            return objectMethod.invoke(this.instance, argsArray);
-        } catch (IllegalAccessException | InvocationTargetException e) { 
-            e.printStackTrace();
-            System.exit(1);
+            if(this.handle == null)
+                this.handle = resolve(arguments.size());
+            return this.handle.invokeWithArguments(arguments);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
         }
-        return null;
     }
 }
\ No newline at end of file
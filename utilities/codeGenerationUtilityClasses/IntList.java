@@ -0,0 +1,45 @@
+import java.util.Arrays;
+
+public class IntList {
+    //elements are shared by copies of a list until one of them is written,
+    //owners is shared with them and counts the lists using the elements
+    private int[] elements;
+    private int[] owners;
+
+    public IntList(int[] newElements) {
+        this.elements = newElements;
+        this.owners = new int[] {1};
+    }
+
+    private IntList(IntList that) {
+        this.elements = that.elements;
+        this.owners = that.owners;
+        this.owners[0] += 1;
+    }
+
+    public IntList copy() {
+        return new IntList(this);
+    }
+
+    private void makeUnique() {
+        if(this.owners[0] == 1)
+            return;
+        this.owners[0] -= 1;
+        this.elements = Arrays.copyOf(this.elements, this.elements.length);
+        this.owners = new int[] {1};
+    }
+
+    public int size() {
+        return this.elements.length;
+    }
+
+    public int get(int index) {
+        return this.elements[index];
+    }
+
+    public void set(int index, int value) {
+        makeUnique();
+        this.elements[index] = value;
+    }
+
+}
@@ -1,31 +1,65 @@
 import java.util.ArrayList;
 
 public class List {
-    public ArrayList<Object> elements;
+    //elements are shared by copies of a list until one of them is written,
+    //owners is shared with them and counts the lists using the elements
+    private ArrayList<Object> elements;
+    private int[] owners;
 
+    //takes the elements, generated code copies nested lists before they are added
     public List(ArrayList<Object> newElements) {
-        this.elements = new ArrayList<>();
-        for(Object newElement : newElements)
-            this.elements.add(getNewObject(newElement));
+        this.elements = newElements;
+        this.owners = new int[] {1};
     }
 
-    public List(List that) {
-        this(that.elements);
+    private List(List that) {
+        this.elements = that.elements;
+        this.owners = that.owners;
+        this.owners[0] += 1;
     }
 
-    private Object getNewObject(Object o) {
+    public List copy() {
+        return new List(this);
+    }
+
+    private static Object copyOf(Object o) {
         if(o instanceof List)
-            return new List((List) o);
+            return ((List) o).copy();
+        else if(o instanceof Tuple)
+            return ((Tuple) o).copy();
+        else if(o instanceof IntList)
+            return ((IntList) o).copy();
+        else if(o instanceof BoolList)
+            return ((BoolList) o).copy();
         else
             return o;
     }
 
+    //nested lists are copied with the elements so writes through them stay in this list
+    private void makeUnique() {
+        if(this.owners[0] == 1)
+            return;
+        this.owners[0] -= 1;
+        ArrayList<Object> newElements = new ArrayList<>(this.elements.size());
+        for(Object element : this.elements)
+            newElements.add(copyOf(element));
+        this.elements = newElements;
+        this.owners = new int[] {1};
+    }
+
     public Object getElement(int index) {
         return this.elements.get(index);
     }
 
+    //for writes into a list or tuple nested in this list
+    public Object getMutableElement(int index) {
+        makeUnique();
+        return this.elements.get(index);
+    }
+
     public void setElement(int index, Object o) {
-        this.elements.set(index, getNewObject(o));
+        makeUnique();
+        this.elements.set(index, o);
     }
 
 }
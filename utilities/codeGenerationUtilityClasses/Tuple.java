@@ -0,0 +1,4 @@
+//base of the classes generated for lists whose elements have different types, one field per element
+public abstract class Tuple {
+    public abstract Tuple copy();
+}
\ No newline at end of file